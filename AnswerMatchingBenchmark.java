@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+/**
+ * Times StaticQuestion.checkAnswer on a question with many accepted answers, against checking each answer the way
+ * checkAnswer used to: lowercasing and stripping ignored characters with String.replace, for the submitted answer and
+ * every correct one, on every check. With a tolerance, it is also timed against computing the full edit distance to
+ * every accepted answer by dynamic programming.
+ */
+public class AnswerMatchingBenchmark {
+    private static final char[] IGNORED = {' ', '-', '.', ','};
+    private static final int ROUNDS = 5;
+    private static final int TOLERANCE = 2;
+
+    private static int matches = 0;                 // Counted so that the checks cannot be optimized away
+
+    /**
+     * Time checking a right and a wrong answer each way
+     * @param args Optionally the number of accepted answers and checks per round
+     */
+    public static void main(String[] args) {
+        if (args.length != 0 && args.length != 2) {
+            System.out.println("Usage: AnswerMatchingBenchmark [<accepted answers> <checks>]");
+            System.exit(1);
+        }
+        int numAnswers = args.length == 2 ? Integer.parseInt(args[0]) : 48;
+        int numChecks = args.length == 2 ? Integer.parseInt(args[1]) : 20000;
+        String[] correct = new String[numAnswers];
+        for (int i = 0; i < numAnswers; i ++)
+            correct[i] = "Accepted Answer-" + i + ", spelled out";
+        StaticQuestion question = new StaticQuestion(correct, "Benchmark", true, IGNORED);
+        // The last accepted answer is the worst case for checking one by one
+        String right = "accepted answer " + (numAnswers - 1) + " SPELLED out.";
+        String wrong = "rejected answer " + (numAnswers - 1) + " spelled out";
+        // Two edits away from the last accepted answer, and normalized the same way for the dynamic programming
+        StaticQuestion tolerant = new StaticQuestion(correct, "Benchmark", true, IGNORED, TOLERANCE);
+        String nearMiss = "acepted answer " + (numAnswers - 1) + " spelled ot";
+        String[] stripped = new String[numAnswers];
+        for (int i = 0; i < numAnswers; i ++)
+            stripped[i] = strip(correct[i]);
+
+        // The first rounds include JIT compilation, so only the last is reported
+        long[] times = new long[8];
+        for (int round = 0; round < ROUNDS; round ++) {
+            times[0] = timeChecks(question, right, numChecks);
+            times[1] = timeChecks(question, wrong, numChecks);
+            times[2] = timeReplacing(correct, right, numChecks);
+            times[3] = timeReplacing(correct, wrong, numChecks);
+            times[4] = timeChecks(tolerant, nearMiss, numChecks);
+            times[5] = timeChecks(tolerant, wrong, numChecks);
+            times[6] = timeDistances(stripped, nearMiss, numChecks);
+            times[7] = timeDistances(stripped, wrong, numChecks);
+        }
+        if (matches != 4 * ROUNDS * numChecks)
+            throw new IllegalStateException("The ways of checking disagree");
+        System.out.println(numAnswers + " accepted answers, " + numChecks + " checks each");
+        System.out.println("Precompiled: right " + times[0] + " ns, wrong " + times[1] + " ns");
+        System.out.println("Replacing:   right " + times[2] + " ns, wrong " + times[3] + " ns");
+        System.out.println("Tolerance " + TOLERANCE + ", precompiled: near miss " + times[4] + " ns, wrong " + times[5]
+                + " ns");
+        System.out.println("Tolerance " + TOLERANCE + ", full distance: near miss " + times[6] + " ns, wrong "
+                + times[7] + " ns");
+    }
+
+    /**
+     * Check an answer many times with StaticQuestion.checkAnswer
+     * @param question Question to check against
+     * @param answer Answer to check
+     * @param numChecks Number of times to check it
+     * @return Average time per check, in nanoseconds
+     */
+    private static long timeChecks(StaticQuestion question, String answer, int numChecks) {
+        long start = System.nanoTime();
+        for (int i = 0; i < numChecks; i ++)
+            if (question.checkAnswer(answer))
+                matches ++;
+        return (System.nanoTime() - start) / numChecks;
+    }
+
+    /**
+     * Check an answer many times the way checkAnswer used to
+     * @param correct Accepted answers
+     * @param answer Answer to check
+     * @param numChecks Number of times to check it
+     * @return Average time per check, in nanoseconds
+     */
+    private static long timeReplacing(String[] correct, String answer, int numChecks) {
+        long start = System.nanoTime();
+        for (int i = 0; i < numChecks; i ++)
+            if (checkByReplacing(correct, answer))
+                matches ++;
+        return (System.nanoTime() - start) / numChecks;
+    }
+
+    /**
+     * Check an answer many times by computing its full edit distance to every accepted answer
+     * @param stripped Accepted answers, already normalized
+     * @param answer Answer to check
+     * @param numChecks Number of times to check it
+     * @return Average time per check, in nanoseconds
+     */
+    private static long timeDistances(String[] stripped, String answer, int numChecks) {
+        long start = System.nanoTime();
+        for (int i = 0; i < numChecks; i ++) {
+            String normalized = strip(answer);
+            for (String s : stripped) {
+                if (distance(s, normalized) <= TOLERANCE) {
+                    matches ++;
+                    break;
+                }
+            }
+        }
+        return (System.nanoTime() - start) / numChecks;
+    }
+
+    /**
+     * Lowercase an answer and remove the characters in IGNORED
+     * @param answer Answer to normalize
+     * @return Normalized answer
+     */
+    private static String strip(String answer) {
+        StringBuilder stripped = new StringBuilder(answer.length());
+        for (char c : answer.toLowerCase().toCharArray()) {
+            boolean ignored = false;
+            for (char toIgnore : IGNORED)
+                if (c == toIgnore)
+                    ignored = true;
+            if (!ignored)
+                stripped.append(c);
+        }
+        return stripped.toString();
+    }
+
+    /**
+     * Compute the Levenshtein distance between two Strings by dynamic programming over the whole table
+     * @param a First String
+     * @param b Second String
+     * @return Number of insertions, deletions and substitutions needed to turn one into the other
+     */
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j ++)
+            previous[j] = j;
+        for (int i = 1; i <= a.length(); i ++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j ++) {
+                int substitute = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Check an answer the way StaticQuestion.checkAnswer used to, ignoring capitalization and IGNORED
+     * @param correct Accepted answers
+     * @param answer Answer to check
+     * @return true if the answer matches an accepted one, false otherwise
+     */
+    private static boolean checkByReplacing(String[] correct, String answer) {
+        answer = answer.toLowerCase();
+        for (char toIgnore : IGNORED)
+            answer = answer.replace(toIgnore + "", "");
+        for (String c : correct) {
+            String correctChanged = c.toLowerCase();
+            for (char toIgnore : IGNORED)
+                correctChanged = correctChanged.replace(toIgnore + "", "");
+            if (correctChanged.equals(answer))
+                return true;
+        }
+        return false;
+    }
+}
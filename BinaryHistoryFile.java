@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary form of a StaticQuestionHistory, used to archive old responses next to the text journal. An object
+ * holds a binary file read into memory with its header parsed, so its records can be decoded.
+ *
+ * File layout (varints are unsigned LEB128; signed values are zigzag-encoded first):
+ *   "EAHB", version byte
+ *   varint record count
+ *   varint length and 4-byte CRC32 of the text journal prefix folded into the archive by compact, both 0 if none
+ *   records: signed varint epoch second, varint (nanoseconds &lt;&lt; 1 | correct), signed varint duration in seconds,
+ *            varint response length, UTF-8 response
+ * Timestamps are LocalDateTimes, so epoch seconds are counted as if they were UTC; the conversion is exact. There is
+ * no index of records by day: loading a history decodes every record anyway, because the mastery statistics need them
+ * all, and the recent window a login needs is kept in the Student's summary manifest instead.
+ */
+public class BinaryHistoryFile {
+    private static final byte[] MAGIC = {'E', 'A', 'H', 'B'};
+    private static final byte VERSION = 2;
+    private static final String TEXT_HEADER = "Timestamp\tDuration\tCorrectness\tResponse";
+
+    private ByteBuffer in;
+    private int recordCount;
+    private long archivedLength;
+    private long archivedChecksum;
+    private int recordsStart;
+
+    /**
+     * Constructor that opens a binary file and reads its header
+     * @param binPath Path to the binary file
+     * @throws Exception Thrown if the file cannot be read or is not in the binary format
+     */
+    public BinaryHistoryFile(String binPath) throws Exception {
+        // Read into memory rather than mapping, since a mapped file cannot be replaced on Windows until the mapping
+        // is garbage collected, and compact replaces the archive while a reader may still hold it
+        in = ByteBuffer.wrap(Files.readAllBytes(Paths.get(binPath)));
+        for (byte b : MAGIC)
+            if (!in.hasRemaining() || in.get() != b)
+                throw new Exception(binPath + " is not a binary history file");
+        if (!in.hasRemaining() || in.get() != VERSION)
+            throw new Exception(binPath + " has an unknown binary history version");
+        recordCount = (int) readVarint(in);
+        archivedLength = readVarint(in);
+        archivedChecksum = 0;
+        for (int i = 0; i < 4; i ++)
+            archivedChecksum = (archivedChecksum << 8) | (in.get() & 0xFF);
+        recordsStart = in.position();
+    }
+
+    /**
+     * Get the number of records in the file
+     * @return Number of records
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Read every record in the file
+     * @return Records in the order they were written
+     */
+    public ArrayList<StaticQuestionAnswerRecord> getRecords() {
+        return decodeRecords(recordsStart, recordCount);
+    }
+
+    /**
+     * Check whether a text journal still begins with the prefix that was folded into this archive, as happens when
+     * compaction stops after replacing the archive but before emptying the journal
+     * @param text Contents of the text journal
+     * @return Length of the prefix to skip, or 0 if the journal does not begin with it
+     */
+    private int getArchivedPrefixLength(byte[] text) {
+        if (archivedLength > 0 && text.length >= archivedLength
+                && checksum(text, (int) archivedLength) == archivedChecksum)
+            return (int) archivedLength;
+        else
+            return 0;
+    }
+
+    /**
+     * Decode records starting at a position
+     * @param start Position of the first record to decode
+     * @param count Greatest number of records to decode
+     * @return Records decoded
+     */
+    private ArrayList<StaticQuestionAnswerRecord> decodeRecords(int start, int count) {
+        ArrayList<StaticQuestionAnswerRecord> records = new ArrayList<>(Math.min(count, recordCount));
+        ByteBuffer buffer = in.duplicate();
+        buffer.position(start);
+        for (int i = 0; i < count && buffer.hasRemaining(); i ++) {
+            long epochSecond = readSignedVarint(buffer);
+            long nanosAndCorrect = readVarint(buffer);
+            long durationSeconds = readSignedVarint(buffer);
+            byte[] response = new byte[(int) readVarint(buffer)];
+            buffer.get(response);
+            StaticQuestionAnswerRecord ar = new StaticQuestionAnswerRecord(new String(response, FileUtilities.CHARSET),
+                    Duration.ofSeconds(durationSeconds), (nanosAndCorrect & 1) != 0);
+            ar.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, (int) (nanosAndCorrect >>> 1), ZoneOffset.UTC));
+            records.add(ar);
+        }
+        return records;
+    }
+
+    /**
+     * Get the path of the archive that belongs to a text journal
+     * @param textPath Path to the text journal, ending in .txt
+     * @return Path to the archive, ending in .bin
+     */
+    public static String getArchivePath(String textPath) {
+        if (textPath.endsWith(".txt"))
+            return textPath.substring(0, textPath.length() - 4) + ".bin";
+        else
+            return textPath + ".bin";
+    }
+
+    /**
+     * Write records to a binary file, replacing it
+     * @param records Records to write
+     * @param binPath Path to the binary file
+     * @throws Exception Thrown if the file cannot be written
+     */
+    public static void write(List<StaticQuestionAnswerRecord> records, String binPath) throws Exception {
+        Files.write(Paths.get(binPath), encode(records, 0, 0));
+    }
+
+    /**
+     * Read a whole history: the records in the archive, if there is one, followed by those in the text journal that
+     * were appended after the archive was last compacted
+     * @param textPath Path to the text journal
+     * @return All the records of the history
+     * @throws Exception Thrown if a file cannot be read or is malformed
+     */
+    public static ArrayList<StaticQuestionAnswerRecord> readHistory(String textPath) throws Exception {
+        return readHistory(textPath, null);
+    }
+
+    /**
+     * Read a whole history, also finding out how much of the text journal was read
+     * @param textPath Path to the text journal
+     * @param textLength If not null, its first element is set to the length in bytes of the complete lines read from
+     *                   the text journal
+     * @return All the records of the history
+     * @throws Exception Thrown if a file cannot be read or is malformed
+     */
+    public static ArrayList<StaticQuestionAnswerRecord> readHistory(String textPath, long[] textLength)
+            throws Exception {
+        return readHistory(textPath, Files.readAllBytes(Paths.get(textPath)), textLength);
+    }
+
+    /**
+     * Read a whole history from the contents of its text journal and its archive, if there is one
+     * @param textPath Path to the text journal, used to find the archive
+     * @param text Contents of the text journal
+     * @param textLength If not null, its first element is set to the length in bytes of the complete lines read from
+     *                   the text journal
+     * @return All the records of the history
+     * @throws Exception Thrown if the archive cannot be read or a file is malformed
+     */
+    private static ArrayList<StaticQuestionAnswerRecord> readHistory(String textPath, byte[] text, long[] textLength)
+            throws Exception {
+        String archivePath = getArchivePath(textPath);
+        ArrayList<StaticQuestionAnswerRecord> records;
+        int start;
+        if (new File(archivePath).exists()) {
+            BinaryHistoryFile archive = new BinaryHistoryFile(archivePath);
+            records = archive.getRecords();
+            // The archived prefix of the journal, if it is still there, must not be read twice
+            start = archive.getArchivedPrefixLength(text);
+        } else {
+            records = new ArrayList<>();
+            start = 0;
+        }
+        String[] lines = ResponseJournal.splitLines(new String(text, start, text.length - start, FileUtilities.CHARSET));
+        records.ensureCapacity(records.size() + lines.length);
+        for (int i = start == 0 ? 1 : 0; i < lines.length; i ++)
+            records.add(new StaticQuestionAnswerRecord(lines[i]));
+        if (textLength != null) {
+            int end = text.length;
+            while (end > 0 && text[end - 1] != '\n')
+                end --;
+            textLength[0] = end;
+        }
+        return records;
+    }
+
+    /**
+     * Move every record in a text journal into its archive, leaving the journal with only its header. Appends to the
+     * journal wait until compaction is done.
+     * @param textPath Path to the text journal
+     * @return Number of records moved into the archive
+     * @throws Exception Thrown if a file cannot be read or written
+     */
+    public static int compact(String textPath) throws Exception {
+        String archivePath = getArchivePath(textPath);
+        synchronized (ResponseJournal.getStripe(textPath)) {
+            FileChannel channel = FileChannel.open(Paths.get(textPath), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                FileLock lock = channel.lock();
+                try {
+                    // Windows locks are mandatory, so the journal can only be read through the locked channel
+                    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    while (buffer.hasRemaining())
+                        if (channel.read(buffer, buffer.position()) <= 0)
+                            break;
+                    byte[] text = Arrays.copyOf(buffer.array(), buffer.position());
+                    ArrayList<StaticQuestionAnswerRecord> records = readHistory(textPath, text, null);
+                    int archived = new File(archivePath).exists() ? new BinaryHistoryFile(archivePath).getRecordCount() : 0;
+                    // Replace the archive first; until the journal is emptied, readHistory skips the archived prefix
+                    String tmpPath = archivePath + ".tmp";
+                    Files.write(Paths.get(tmpPath), encode(records, text.length, checksum(text, text.length)));
+                    Files.move(Paths.get(tmpPath), Paths.get(archivePath), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap((TEXT_HEADER + FileUtilities.EOL).getBytes(FileUtilities.CHARSET)),
+                            0);
+                    channel.force(false);
+                    return records.size() - archived;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Convert a text journal into a binary file, without changing the journal
+     * @param textPath Path to the text journal
+     * @param binPath Path to the binary file to write
+     * @throws Exception Thrown if a file cannot be read or written
+     */
+    public static void fromText(String textPath, String binPath) throws Exception {
+        String[] lines = ResponseJournal.readLines(textPath);
+        ArrayList<StaticQuestionAnswerRecord> records = new ArrayList<>(lines.length);
+        for (int i = 1; i < lines.length; i ++)
+            records.add(new StaticQuestionAnswerRecord(lines[i]));
+        write(records, binPath);
+    }
+
+    /**
+     * Convert a binary file into a text journal
+     * @param binPath Path to the binary file
+     * @param textPath Path to the text journal to write
+     * @throws Exception Thrown if a file cannot be read or written
+     */
+    public static void toText(String binPath, String textPath) throws Exception {
+        StringBuilder text = new StringBuilder(TEXT_HEADER).append(FileUtilities.EOL);
+        for (StaticQuestionAnswerRecord ar : new BinaryHistoryFile(binPath).getRecords())
+            text.append(ar.toString()).append(FileUtilities.EOL);
+        FileUtilities.toFile(text.toString(), textPath);
+    }
+
+    /**
+     * Encode records in the binary format
+     * @param records Records to encode
+     * @param archivedLength Length of the journal prefix the records include, or 0
+     * @param archivedChecksum CRC32 of that prefix, or 0
+     * @return Contents of the binary file
+     */
+    private static byte[] encode(List<StaticQuestionAnswerRecord> records, long archivedLength, long archivedChecksum) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (StaticQuestionAnswerRecord ar : records) {
+            LocalDateTime timestamp = ar.getTimestamp();
+            writeSignedVarint(body, timestamp.toEpochSecond(ZoneOffset.UTC));
+            writeVarint(body, ((long) timestamp.getNano() << 1) | (ar.getCorrect() ? 1 : 0));
+            writeSignedVarint(body, ar.getDuration().getSeconds());
+            byte[] response = ar.getResponse().getBytes(FileUtilities.CHARSET);
+            writeVarint(body, response.length);
+            body.write(response, 0, response.length);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 32);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        writeVarint(out, records.size());
+        writeVarint(out, archivedLength);
+        for (int shift = 24; shift >= 0; shift -= 8)
+            out.write((int) (archivedChecksum >>> shift) & 0xFF);
+        byte[] bodyBytes = body.toByteArray();
+        out.write(bodyBytes, 0, bodyBytes.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Compute the CRC32 of the start of an array
+     * @param bytes Array to check
+     * @param length Number of bytes to include
+     * @return CRC32 of the bytes
+     */
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    /**
+     * Write an unsigned varint
+     * @param out Stream to write to
+     * @param value Value to write, treated as unsigned
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Write a signed varint, zigzag-encoded so that small negative values stay short
+     * @param out Stream to write to
+     * @param value Value to write
+     */
+    private static void writeSignedVarint(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Read an unsigned varint
+     * @param in Buffer positioned at the varint
+     * @return Value read
+     */
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint in binary history");
+    }
+
+    /**
+     * Read a zigzag-encoded signed varint
+     * @param in Buffer positioned at the varint
+     * @return Value read
+     */
+    private static long readSignedVarint(ByteBuffer in) {
+        long raw = readVarint(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Convert or compact history files
+     * @param args "compact" followed by text journals, "tobinary" followed by a text journal and a binary file, or
+     *             "totext" followed by a binary file and a text journal
+     * @throws Exception Thrown if a file cannot be read or written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("compact")) {
+            for (int i = 1; i < args.length; i ++)
+                System.out.println(args[i] + ": archived " + compact(args[i]) + " records");
+        } else if (args.length == 3 && args[0].equals("tobinary")) {
+            fromText(args[1], args[2]);
+        } else if (args.length == 3 && args[0].equals("totext")) {
+            toText(args[1], args[2]);
+        } else {
+            System.out.println("Usage: BinaryHistoryFile compact <history.txt> ...");
+            System.out.println("       BinaryHistoryFile tobinary <history.txt> <history.bin>");
+            System.out.println("       BinaryHistoryFile totext <history.bin> <history.txt>");
+            System.exit(1);
+        }
+    }
+}
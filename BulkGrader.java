@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grades answers given away from the program, such as on paper, and records them in the Students' histories. Every
+ * answer is checked before any is recorded, Students are graded concurrently on a thread pool, and each history file
+ * is written once per batch however many answers it receives.
+ */
+public class BulkGrader {
+    private static final char[] UNRECORDABLE_CHARACTERS = {'\t', '\n', '\r', '#'};
+
+    private String pathToRoot;
+    private String className;
+
+    /**
+     * Constructor that sets the class whose answers will be graded
+     * @param inPathToRoot Path to the root of the directory tree
+     * @param inClassName Name of the class, as listed in the root index.txt
+     */
+    public BulkGrader(String inPathToRoot, String inClassName) {
+        pathToRoot = inPathToRoot;
+        className = inClassName;
+    }
+
+    /**
+     * Grade answers and record them, keeping the timestamps and durations they carry
+     * @param answers Answers to grade
+     * @return Whether each answer was right, in the order given
+     * @throws IllegalArgumentException Thrown if an answer names a Student or StaticQuestion the class does not have,
+     * or has a blank response or one a history line cannot hold; nothing is recorded
+     * @throws Exception Thrown if the class's files are invalid or an answer could not be saved
+     */
+    public boolean[] grade(final List<OfflineAnswer> answers) throws Exception {
+        final String pathToClass = pathToRoot + "/" + className;
+        final QuestionIndex questionIndex = QuestionBank.getInstance(pathToClass).getQuestionIndex();
+        final int syncInterval = QuizzingEngine.getSyncInterval(
+                FileUtilities.fromFileCleaned(pathToRoot + "/" + "config.txt"));
+        List<String> students = Arrays.asList(Utilities.stringSplit(
+                FileUtilities.fromFileCleaned(pathToClass + "/index.txt"), FileUtilities.EOL));
+
+        // Check every answer before recording any, so a bad batch can be fixed and imported again
+        final int[] ordinals = new int[answers.size()];
+        LinkedHashMap<String, ArrayList<Integer>> answersByStudent = new LinkedHashMap<>();
+        for (int i = 0; i < answers.size(); i ++) {
+            OfflineAnswer answer = answers.get(i);
+            if (!students.contains(answer.getStudentName()))
+                throw new IllegalArgumentException("Unknown student: " + answer.getStudentName());
+            ordinals[i] = questionIndex.getOrdinal(answer.getQuestionText());
+            if (ordinals[i] < 0 || !(questionIndex.get(ordinals[i]) instanceof StaticQuestion))
+                throw new IllegalArgumentException("Unknown question: " + answer.getQuestionText());
+            // A history line needs a response field to be read back
+            if (answer.getResponse().isEmpty())
+                throw new IllegalArgumentException("Blank response from " + answer.getStudentName() + " to "
+                        + answer.getQuestionText());
+            // Tabs and line breaks would split the history line, and # would start a comment when it is read back
+            for (char c : UNRECORDABLE_CHARACTERS)
+                if (answer.getResponse().indexOf(c) >= 0)
+                    throw new IllegalArgumentException("Response from " + answer.getStudentName() + " to "
+                            + answer.getQuestionText() + " contains " + describe(c) + ", which cannot be recorded");
+            ArrayList<Integer> indices = answersByStudent.get(answer.getStudentName());
+            if (indices == null) {
+                indices = new ArrayList<>();
+                answersByStudent.put(answer.getStudentName(), indices);
+            }
+            indices.add(i);
+        }
+
+        final boolean[] correct = new boolean[answers.size()];
+        int threads = Math.max(1, Math.min(answersByStudent.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<Object>> futures = new ArrayList<>(answersByStudent.size());
+            for (final String name : answersByStudent.keySet()) {
+                final ArrayList<Integer> indices = answersByStudent.get(name);
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        Student student = new Student(pathToClass + "/" + name, questionIndex, false, syncInterval);
+                        gradeStudent(student, answers, indices, ordinals, correct);
+                        return null;
+                    }
+                }));
+            }
+            // Each Student's answers are recorded whatever happens to the others; the first failure is reported
+            Exception failure = null;
+            for (Future<Object> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            if (failure != null)
+                throw failure;
+        } finally {
+            executor.shutdownNow();
+        }
+        return correct;
+    }
+
+    /**
+     * Grade one Student's answers and append them to the Student's history files, one write per file
+     * @param student Student who gave the answers
+     * @param answers All the answers being graded
+     * @param indices Positions in answers of the Student's answers
+     * @param ordinals Ordinal of the Question of each answer
+     * @param correct Array in which to set whether each of the Student's answers was right
+     * @throws Exception Thrown if an answer could not be saved
+     */
+    private static void gradeStudent(Student student, List<OfflineAnswer> answers, ArrayList<Integer> indices,
+                                     int[] ordinals, boolean[] correct) throws Exception {
+        LinkedHashMap<Integer, ArrayList<StaticQuestionAnswerRecord>> recordsByOrdinal = new LinkedHashMap<>();
+        for (int i : indices) {
+            OfflineAnswer answer = answers.get(i);
+            StaticQuestion question = (StaticQuestion) student.getQuestionIndex().get(ordinals[i]);
+            correct[i] = question.checkAnswer(answer.getResponse());
+            StaticQuestionAnswerRecord record = new StaticQuestionAnswerRecord(answer.getResponse(),
+                    answer.getDuration(), correct[i]);
+            record.setTimestamp(answer.getTimestamp());
+            ArrayList<StaticQuestionAnswerRecord> records = recordsByOrdinal.get(ordinals[i]);
+            if (records == null) {
+                records = new ArrayList<>();
+                recordsByOrdinal.put(ordinals[i], records);
+            }
+            records.add(record);
+        }
+
+        for (int ordinal : recordsByOrdinal.keySet()) {
+            ArrayList<StaticQuestionAnswerRecord> records = recordsByOrdinal.get(ordinal);
+            // Keep each batch in time order, so a history that was in order stays so when the batch is newer
+            Collections.sort(records, new Comparator<StaticQuestionAnswerRecord>() {
+                public int compare(StaticQuestionAnswerRecord a, StaticQuestionAnswerRecord b) {
+                    return a.getTimestamp().compareTo(b.getTimestamp());
+                }
+            });
+            QuestionHistory qh = student.getQuestionHistory(ordinal);
+            ((StaticQuestionHistory) qh).addResponses(records, student.getFilepath() + "/"
+                    + qh.getQuestion().getQuestionText() + ".txt");
+        }
+    }
+
+    /**
+     * Name a character that cannot be recorded, so that it is visible in an error message
+     * @param c Character to name
+     * @return Name of the character
+     */
+    private static String describe(char c) {
+        if (c == '\t')
+            return "a tab";
+        else if (c == '\n' || c == '\r')
+            return "a line break";
+        else
+            return "'" + c + "'";
+    }
+
+    /**
+     * Read the answers in an import file. Lines are read as they are, not cleaned of comments, so that a response
+     * containing # reaches grade and is rejected rather than silently cut short; a line may end in CRLF.
+     * @param path Path to the import file, one answer per line; blank lines are skipped
+     * @return Answers in the file, in order
+     * @throws Exception Thrown if the file cannot be read or a line is malformed
+     */
+    public static ArrayList<OfflineAnswer> readAnswers(String path) throws Exception {
+        ArrayList<OfflineAnswer> answers = new ArrayList<>();
+        for (String line : Utilities.stringSplit(FileUtilities.fromFile(path), '\n')) {
+            if (line.endsWith("\r"))
+                line = line.substring(0, line.length() - 1);
+            if (!line.isEmpty())
+                answers.add(new OfflineAnswer(line));
+        }
+        return answers;
+    }
+
+    /**
+     * Grade an import file and report how quickly it was done
+     * @param args Path to the root of the directory tree, name of the class, and path to the import file
+     * @throws Exception Thrown if the answers cannot be graded or saved
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.out.println("Usage: BulkGrader <path to root> <class> <answers file>");
+            System.exit(1);
+        }
+        long begin = System.nanoTime();
+        ArrayList<OfflineAnswer> answers = readAnswers(args[2]);
+        long read = System.nanoTime();
+        boolean[] correct = new BulkGrader(args[0], args[1]).grade(answers);
+        long graded = System.nanoTime();
+
+        int numCorrect = 0;
+        for (boolean c : correct)
+            if (c)
+                numCorrect ++;
+        double seconds = (graded - begin) / 1e9;
+        System.out.println("Graded " + answers.size() + " answers, " + numCorrect + " correct");
+        System.out.println("Read in " + (read - begin) / 1000000 + " ms, graded and recorded in "
+                + (graded - read) / 1000000 + " ms (" + Math.round(answers.size() / Math.max(seconds, 1e-9))
+                + " answers per second)");
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The progress of every Student in a class, computed in parallel and sent to the teacher as a single digest email
+ * instead of one email per Student
+ */
+public class ClassReport {
+    private String className;
+    private String destination;
+    private String[] studentNames;
+    private ProgressSnapshot[] progress;
+
+    /**
+     * Constructor that loads every Student listed in the class index.txt, without changing their files, and computes
+     * their progress. The class's QuestionBank is shared by all the Students.
+     * @param pathToRoot Path to the root of the directory tree
+     * @param inClassName Name of the class
+     * @throws Exception Thrown if the file structure is invalid
+     */
+    public ClassReport(String pathToRoot, String inClassName) throws Exception {
+        className = inClassName;
+        final String pathToClass = pathToRoot + "/" + className;
+        String classConfigText = FileUtilities.fromFileCleaned(pathToClass + "/config.txt");
+        destination = FileUtilities.findDataFromLabel(classConfigText, "EmailReportDestination");
+        final QuestionIndex questionIndex = QuestionBank.getInstance(pathToClass).getQuestionIndex();
+
+        studentNames = QuizzingEngine.getStudents(pathToClass);
+        progress = new ProgressSnapshot[studentNames.length];
+
+        int threads = Math.max(1, Math.min(studentNames.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<ProgressSnapshot>> futures = new ArrayList<>(studentNames.length);
+            for (final String name : studentNames) {
+                futures.add(executor.submit(new Callable<ProgressSnapshot>() {
+                    public ProgressSnapshot call() throws Exception {
+                        return new ProgressSnapshot(new Student(pathToClass + "/" + name, questionIndex, true));
+                    }
+                }));
+            }
+            for (int i = 0; i < progress.length; i ++)
+                progress[i] = futures.get(i).get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the name of the class reported on
+     * @return Name of the class
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the names of the Students in the class
+     * @return Names of the Students, in the order of the class index.txt
+     */
+    public String[] getStudentNames() {
+        return studentNames.clone();
+    }
+
+    /**
+     * Get the progress of a Student in the class
+     * @param student Position of the Student in the class index.txt
+     * @return Progress of the Student
+     */
+    public ProgressSnapshot getProgress(int student) {
+        return progress[student];
+    }
+
+    /**
+     * Make the text of the digest: a summary table of every Student's total mastery followed by each Student's
+     * progress on every tag
+     * @return Text of the digest
+     */
+    public String makeReport() {
+        String[][] summary = new String[studentNames.length + 1][3];
+        summary[0][0] = "Student";
+        summary[0][1] = "Percent Mastery";
+        summary[0][2] = "Progress Bar";
+        for (int i = 0; i < studentNames.length; i ++) {
+            int r = i + 1;
+            int percentMastery = (int) (progress[i].getPercentMastered() * 100);
+            summary[r][0] = studentNames[i];
+            summary[r][1] = "" + percentMastery + "%";
+            summary[r][2] = UserInterfaceUtilities.makeProgressBar(10, percentMastery / 100.0);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(UserInterfaceUtilities.makeTable(summary));
+        for (int i = 0; i < studentNames.length; i ++) {
+            report.append(FileUtilities.EOL).append(FileUtilities.EOL);
+            report.append(studentNames[i]).append(FileUtilities.EOL);
+            report.append(UserInterfaceUtilities.makeTable(progress[i].makeTable()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Get the teacher email address reports on this class are sent to
+     * @return EmailReportDestination from the class config.txt
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Queue one digest for each distinct EmailReportDestination, covering every listed class sent there, so a
+     * teacher with several classes gets a single email
+     * @param pathToRoot Path to the root of the directory tree
+     * @param classes Names of the classes to report on
+     * @return true if every digest was queued for sending, false otherwise
+     * @throws Exception Thrown if the file structure is invalid
+     */
+    public static boolean sendDigests(String pathToRoot, String[] classes) throws Exception {
+        LinkedHashMap<String, ArrayList<ClassReport>> reportsByDestination = new LinkedHashMap<>();
+        for (String c : classes) {
+            ClassReport cr = new ClassReport(pathToRoot, c);
+            ArrayList<ClassReport> reports = reportsByDestination.get(cr.getDestination());
+            if (reports == null) {
+                reports = new ArrayList<>();
+                reportsByDestination.put(cr.getDestination(), reports);
+            }
+            reports.add(cr);
+        }
+
+        String rootConfigText = FileUtilities.fromFileCleaned(pathToRoot + "/config.txt");
+        MailQueue queue = QuizzingEngine.getMailQueue(pathToRoot, rootConfigText);
+        boolean allQueued = true;
+        for (Map.Entry<String, ArrayList<ClassReport>> entry : reportsByDestination.entrySet()) {
+            StringBuilder names = new StringBuilder();
+            StringBuilder text = new StringBuilder();
+            for (ClassReport cr : entry.getValue()) {
+                if (names.length() != 0) {
+                    names.append(", ");
+                    text.append(FileUtilities.EOL).append(FileUtilities.EOL);
+                }
+                names.append(cr.getClassName());
+                text.append(cr.getClassName()).append(FileUtilities.EOL);
+                text.append(cr.makeReport());
+            }
+            Mailer mailer = new Mailer(entry.getKey(), queue);
+            if (!mailer.sendClassReport(text.toString(), names.toString()))
+                allQueued = false;
+        }
+        return allQueued;
+    }
+
+    /**
+     * Send digests for the classes, waiting for them to be delivered before exiting
+     * @param args Path to the root of the directory tree, followed by the names of the classes to report on; if no
+     *             classes are named, every class in the root index.txt is reported on
+     * @throws Exception Thrown if the file structure is invalid
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: ClassReport <path to root> [class ...]");
+            System.exit(1);
+        }
+        String pathToRoot = args[0];
+        String[] classes;
+        if (args.length > 1) {
+            classes = new String[args.length - 1];
+            System.arraycopy(args, 1, classes, 0, classes.length);
+        } else
+            classes = QuizzingEngine.getClasses(pathToRoot);
+
+        if (!sendDigests(pathToRoot, classes))
+            System.out.println("Some digests could not be queued for sending.");
+
+        String rootConfigText = FileUtilities.fromFileCleaned(pathToRoot + "/config.txt");
+        if (!QuizzingEngine.getMailQueue(pathToRoot, rootConfigText).flush(60 * 1000))
+            System.out.println("Some digests were not delivered yet; they will be sent the next time the program runs.");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Reads a file one line at a time, dropping annotations (comments and blank lines) on the fly so that the whole file
+ * never has to be held in memory
+ */
+public class CleanedLineReader implements Closeable {
+    private BufferedReader input;
+    private StringBuilder line;
+
+    /**
+     * Constructor that opens the file to read
+     * @param path Path to the file
+     * @throws Exception Thrown in case of a non-existent or inaccessible file
+     */
+    public CleanedLineReader(String path) throws Exception {
+        input = new BufferedReader(new InputStreamReader(new FileInputStream(path), FileUtilities.CHARSET));
+        line = new StringBuilder();
+    }
+
+    /**
+     * Read the next line that still has text once its comment is removed
+     * @return Next non-blank line without its comment or EOL, or null at the end of the file
+     * @throws IOException Thrown if the file cannot be read
+     */
+    public String readLine() throws IOException {
+        while (true) {
+            line.setLength(0);
+            boolean inComment = false;
+            int c;
+            while ((c = input.read()) != -1 && c != '\n') {
+                if (c == '#')
+                    inComment = true;
+                if (!inComment)
+                    line.append((char) c);
+            }
+            if (line.length() != 0)
+                return line.toString();
+            if (c == -1)
+                return null;
+        }
+    }
+
+    /**
+     * Close the file
+     * @throws IOException Thrown if the file cannot be closed
+     */
+    public void close() throws IOException {
+        input.close();
+    }
+}
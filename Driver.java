@@ -18,6 +18,7 @@
 
 package com.icloud.cs_temporary.EducationApplication;
 
+import java.util.ArrayList;
 import java.util.Scanner;
 
 public class Driver {
@@ -44,11 +45,13 @@ public class Driver {
                     if (!FileUtilities.pathExists(pathToRoot)) {
                         System.out.println("Sorry, but that is not a valid file path.");
                     } else {
-                        valid = QuizzingEngine.isValid(pathToRoot);
-                        if (valid) {
-                            valid = true;
-                        } else
-                            System.out.println("Sorry, but the specified root does not contain a valid directory tree.");
+                        ArrayList<String> problems = new RootValidator(pathToRoot).validate();
+                        valid = problems.isEmpty();
+                        if (!valid) {
+                            System.out.println("Sorry, but the specified root does not contain a valid directory tree:");
+                            for (String problem : problems)
+                                System.out.println("    " + problem);
+                        }
                     }
                 } while (!valid);
             }
@@ -98,23 +101,13 @@ public class Driver {
                         }
                     }
                 } else if (selection.equals("View Progress")) {
-                    String[] tags = qe.getAllTags();
-                    // Table Headings: Tag, Percent Mastery
-                    String[][] table = new String[tags.length + 1][3];
-                    table[0][0] = "Tag";
-                    table[0][1] = "Percent Mastery";
-                    table[0][2] = "Progress Bar";
-
-                    for (int i = 0; i < tags.length; i ++) {
-                        int r = i + 1;
-                        int percentMastery = (int) (qe.getStudent().getPercentMastered(tags[i]) * 100);
-                        table[r][0] = tags[i];
-                        table[r][1] = "" + percentMastery + "%";
-                        table[r][2] = UserInterfaceUtilities.makeProgressBar(10, percentMastery / 100.0);
-                    }
+                    String[][] table = qe.getProgress().makeTable();
                     UserInterfaceUtilities.displayTable("Progress on All Tags", table);
 
                 } else if (selection.equals("Exit")) {
+                    if (!qe.close())
+                        UserInterfaceUtilities.displayMessage("Some reports have not been sent yet. They will be sent " +
+                                "the next time the program starts.");
                     mainLoop = false;
                 } else if (selection.equals("View History")) {
                     String[] tags = qe.getAllTags();
@@ -134,12 +127,12 @@ public class Driver {
                         selectedTags[i] = tags[selectedTagIndices[i]];
                     }
                     if (!qe.sendFullHistoryReport(selectedTags))
-                        UserInterfaceUtilities.displayMessage("SEND FAILURE: Sorry, but the report failed to send for " +
-                                "an unknown reason.");
+                        UserInterfaceUtilities.displayMessage("SEND FAILURE: Sorry, but the report could not be queued " +
+                                "for sending.");
                 } else if (selection.equals("Send Progress")) {
                     if (!qe.sendProgressReport())
-                        UserInterfaceUtilities.displayMessage("SEND FAILURE: Sorry, but the report failed to send for " +
-                                "an unknown reason.");
+                        UserInterfaceUtilities.displayMessage("SEND FAILURE: Sorry, but the report could not be queued " +
+                                "for sending.");
                 } else if (selection.equals("About")) {
                     UserInterfaceUtilities.displayMessage(c.getAbout());
                 } else if (selection.equals("View License")) {
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.HashMap;
+
+/**
+ * Levenshtein distance from a fixed pattern to any text, for approximate answer matching. The pattern is compiled once
+ * into a bit mask per character, so for patterns of up to 64 characters each text is processed a whole column at a
+ * time with Myers' bit-parallel algorithm. Longer patterns fall back to dynamic programming over a diagonal band.
+ */
+public class EditDistance {
+    private static final int ASCII_LIMIT = 128;
+    private static final int WORD_SIZE = 64;
+
+    private String pattern;
+    private long[] asciiMasks;                      // Bit i is set if pattern character i is that ASCII character
+    private HashMap<Character, Long> otherMasks;    // The same, for the characters beyond ASCII in the pattern
+
+    /**
+     * Constructor that compiles a pattern
+     * @param inPattern Text that others will be compared to
+     */
+    public EditDistance(String inPattern) {
+        pattern = inPattern;
+        asciiMasks = new long[ASCII_LIMIT];
+        otherMasks = new HashMap<>();
+        for (int i = 0; i < pattern.length() && i < WORD_SIZE; i ++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII_LIMIT) {
+                asciiMasks[c] |= 1L << i;
+            } else {
+                Long mask = otherMasks.get(c);
+                otherMasks.put(c, (mask == null ? 0 : mask) | 1L << i);
+            }
+        }
+    }
+
+    /**
+     * Get the pattern that texts are compared to
+     * @return Pattern text
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Check whether a text is within a number of single-character insertions, deletions and substitutions of the
+     * pattern
+     * @param text Text to compare to the pattern
+     * @param maxDistance Largest number of edits allowed
+     * @return true if the distance is at most maxDistance, false otherwise
+     */
+    public boolean isWithin(String text, int maxDistance) {
+        // Every extra or missing character is at least one edit
+        if (Math.abs(text.length() - pattern.length()) > maxDistance)
+            return false;
+        if (pattern.length() <= WORD_SIZE)
+            return distance(text) <= maxDistance;
+        return bandedDistance(text, maxDistance) <= maxDistance;
+    }
+
+    /**
+     * Compute the Levenshtein distance from the pattern to a text
+     * @param text Text to compare to the pattern
+     * @return Smallest number of single-character insertions, deletions and substitutions that turn one into the other
+     */
+    public int distance(String text) {
+        if (pattern.length() > WORD_SIZE)
+            return bandedDistance(text, Math.max(pattern.length(), text.length()));
+        int m = pattern.length();
+        if (m == 0)
+            return text.length();
+
+        // Bit i of the vertical deltas describes row i + 1 of the current column of the distance table
+        long last = 1L << (m - 1);
+        long positive = m == WORD_SIZE ? -1L : (1L << m) - 1;
+        long negative = 0;
+        int score = m;
+        for (int j = 0; j < text.length(); j ++) {
+            long equal = getMask(text.charAt(j));
+            long xv = equal | negative;
+            long xh = (((equal & positive) + positive) ^ positive) | equal;
+            long horizontalPositive = negative | ~(xh | positive);
+            long horizontalNegative = positive & xh;
+            if ((horizontalPositive & last) != 0)
+                score ++;
+            else if ((horizontalNegative & last) != 0)
+                score --;
+            // Row 0 of the table counts up along the text, so its horizontal delta is always +1
+            horizontalPositive = (horizontalPositive << 1) | 1;
+            horizontalNegative <<= 1;
+            positive = horizontalNegative | ~(xv | horizontalPositive);
+            negative = horizontalPositive & xv;
+        }
+        return score;
+    }
+
+    /**
+     * Get the positions of a character in the pattern
+     * @param c Character to look for
+     * @return Bit mask with bit i set if pattern character i is c
+     */
+    private long getMask(char c) {
+        if (c < ASCII_LIMIT)
+            return asciiMasks[c];
+        Long mask = otherMasks.get(c);
+        return mask == null ? 0 : mask;
+    }
+
+    /**
+     * Compute the Levenshtein distance from the pattern to a text, only filling in the cells of the distance table
+     * within maxDistance of the diagonal
+     * @param text Text to compare to the pattern
+     * @param maxDistance Largest distance of interest
+     * @return Distance from the pattern to the text, or maxDistance + 1 if it is larger than maxDistance
+     */
+    private int bandedDistance(String text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+        int outside = maxDistance + 1;
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j ++)
+            previous[j] = j <= maxDistance ? j : outside;
+        for (int i = 1; i <= m; i ++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(n, i + maxDistance);
+            current[0] = i <= maxDistance ? i : outside;
+            if (from > 1)
+                current[from - 1] = outside;
+            int best = current[0];
+            for (int j = from; j <= to; j ++) {
+                int cost = pattern.charAt(i - 1) == text.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(d, outside);
+                best = Math.min(best, current[j]);
+            }
+            if (to < n)
+                current[to + 1] = outside;
+            // The smallest distance in a row never decreases down the table, so one row out of range is enough
+            if (best > maxDistance)
+                return outside;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[n], outside);
+    }
+}
@@ -18,12 +18,21 @@
 
 package com.icloud.cs_temporary.EducationApplication;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Class that contains utilities for working with files
  */
 public class FileUtilities {
     public static final String EOL = "\n";
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
 
     /**
      * Writes the provided data to the file
@@ -46,12 +55,16 @@ public class FileUtilities {
      * @throws Exception Required for some reason
      */
     public static void toFile(String text, String path) throws Exception {
-        File f = new File(path);
-        FileOutputStream fos = new FileOutputStream(f);
-        DataOutputStream dos = new DataOutputStream(fos);
-        dos.writeBytes(text);
-        dos.flush();
-        dos.close();
+        ByteBuffer buffer = CHARSET.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE).encode(CharBuffer.wrap(text));
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } finally {
+            channel.close();
+        }
     }
 
     /**
@@ -61,14 +74,21 @@ public class FileUtilities {
      * @throws Exception Required for some reason
      */
     public static String fromFile(String path) throws Exception {
-        File f = new File(path);
-        FileInputStream fis = new FileInputStream(f);
-        DataInputStream dis = new DataInputStream(fis);
-        byte[] keyBytes = new byte[(int) f.length()];
-        dis.readFully(keyBytes);
-        dis.close();
-
-        return ByteUtilities.ByteToString(keyBytes);
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            // Read onto the heap rather than mapping, since a mapped file cannot be replaced or deleted on Windows
+            // until the mapping is garbage collected
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0)
+                    break;
+            }
+            buffer.flip();
+            return CHARSET.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE).decode(buffer).toString();
+        } finally {
+            channel.close();
+        }
     }
 
     /**
@@ -221,6 +241,16 @@ public class FileUtilities {
         return fromFile;
     }
 
+    /**
+     * Get the text as it was read before files were decoded as UTF-8, when every byte became a character of its own.
+     * Files named after question texts with non-ASCII characters were created with these names.
+     * @param text Text decoded as UTF-8
+     * @return Text as the old byte-per-character decoding produced it
+     */
+    public static String toLegacyDecoding(String text) {
+        return ByteUtilities.ByteToString(text.getBytes(CHARSET));
+    }
+
     /**
      * Make a String into a cross-platform valid file name
      * @param original Text to convert to file name
@@ -312,16 +342,22 @@ public class FileUtilities {
     }
 
     /**
-     * Remove all text between a # and the end of the line, inclusive
+     * Remove all text between a # and the end of the line, leaving the EOL in place
      * @param text Text with comments to remove
      * @return Text without the comments
      */
     public static String removeComments(String text) {
-        while (text.contains("#")) {
-            int poundIndex = text.indexOf("#");
-            text = text.substring(0, poundIndex) + text.substring(text.indexOf(EOL, poundIndex) + 1, text.length());
+        StringBuilder withoutComments = new StringBuilder(text.length());
+        int start = 0;
+        int poundIndex;
+        while ((poundIndex = text.indexOf('#', start)) >= 0) {
+            withoutComments.append(text, start, poundIndex);
+            int eolIndex = text.indexOf(EOL, poundIndex);
+            // A comment on the last line may run to the end of the text without an EOL
+            start = eolIndex < 0 ? text.length() : eolIndex;
         }
-        return text;
+        withoutComments.append(text, start, text.length());
+        return withoutComments.toString();
     }
 
     /**
@@ -330,10 +366,10 @@ public class FileUtilities {
      * @return The text without any blank lines
      */
     public static String removeBlankLines(String text) {
-        String[] nonBlankLines = Utilities.stringSplit(text, EOL);
-        String withoutBlankLines = "";
-        for (String s : nonBlankLines)
-            withoutBlankLines += s + EOL;
-        return withoutBlankLines;
+        StringBuilder withoutBlankLines = new StringBuilder(text.length() + EOL.length());
+        TokenCursor cursor = new TokenCursor(text, EOL);
+        while (cursor.next())
+            withoutBlankLines.append(text, cursor.getStart(), cursor.getEnd()).append(EOL);
+        return withoutBlankLines.toString();
     }
 }
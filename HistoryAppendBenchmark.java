@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Times recording an answer in a QuestionHistory file as the file grows, both by appending through the journal and by
+ * rewriting the whole file as answers used to be recorded, so the two can be compared at each size
+ */
+public class HistoryAppendBenchmark {
+    private static final String HEADER = "Timestamp\tDuration\tCorrectness\tResponse";
+    private static final int FIRST_SIZE = 1250;
+    private static final int FILL_BATCH = 1000;
+    private static final int TIMED_APPENDS = 1000;
+    private static final int TIMED_REWRITES = 50;
+
+    /**
+     * Grow a history file, timing appends and rewrites each time its size doubles
+     * @param args Path to a new directory to write the files in, then optionally the largest number of answers to
+     *             grow the file to
+     * @throws Exception Thrown if the files cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 && args.length != 2) {
+            System.out.println("Usage: HistoryAppendBenchmark <path to new directory> [<answers>]");
+            System.exit(1);
+        }
+        int maxSize = args.length == 2 ? Integer.parseInt(args[1]) : 40000;
+        if (new File(args[0]).exists())
+            throw new Exception(args[0] + " already exists");
+        new File(args[0]).mkdirs();
+        String journalPath = args[0] + "/Journal.txt";
+        String rewritePath = args[0] + "/Rewrite.txt";
+        StaticQuestion question = new StaticQuestion(new String[] {"right"}, "Benchmark", false, new char[0]);
+
+        // Warm up both ways of recording on a file of their own, so the first size is not timed cold
+        String warmupPath = args[0] + "/Warmup.txt";
+        FileUtilities.toFile(HEADER + FileUtilities.EOL, warmupPath);
+        timeAppends(new StaticQuestionHistory(question, warmupPath), warmupPath);
+        timeRewrites(warmupPath);
+
+        FileUtilities.toFile(HEADER + FileUtilities.EOL, journalPath);
+        StaticQuestionHistory history = new StaticQuestionHistory(question, journalPath);
+        for (int size = FIRST_SIZE; size <= maxSize; size *= 2) {
+            while (history.getResponseCount() < size) {
+                int batch = Math.min(FILL_BATCH, size - history.getResponseCount());
+                ArrayList<StaticQuestionAnswerRecord> records = new ArrayList<>(batch);
+                for (int i = 0; i < batch; i ++)
+                    records.add(new StaticQuestionAnswerRecord("Answer " + i, Duration.ofSeconds(5), i % 3 != 0));
+                history.addResponses(records, journalPath);
+            }
+            int count = history.getResponseCount();
+            long bytes = new File(journalPath).length();
+            Files.copy(Paths.get(journalPath), Paths.get(rewritePath), StandardCopyOption.REPLACE_EXISTING);
+            long append = timeAppends(history, journalPath);
+            long rewrite = timeRewrites(rewritePath);
+            System.out.println(count + " answers (" + bytes / 1024 + " KiB): append " + append / 1000
+                    + " us, rewrite " + rewrite / 1000 + " us");
+        }
+    }
+
+    /**
+     * Record answers by appending them through a QuestionHistory's journal
+     * @param history History to record the answers in
+     * @param path Path to the history's file
+     * @return Average time per answer, in nanoseconds
+     * @throws Exception Thrown if an answer cannot be recorded
+     */
+    private static long timeAppends(StaticQuestionHistory history, String path) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_APPENDS; i ++)
+            history.addResponse("Timed " + i, Duration.ofSeconds(5), i % 2 == 0, path);
+        return (System.nanoTime() - start) / TIMED_APPENDS;
+    }
+
+    /**
+     * Record answers by reading the whole file and writing it back with the answer added, as addResponse used to
+     * @param path Path to the file
+     * @return Average time per answer, in nanoseconds
+     * @throws Exception Thrown if the file cannot be read or written
+     */
+    private static long timeRewrites(String path) throws Exception {
+        String line = new StaticQuestionAnswerRecord("Timed", Duration.ofSeconds(5), true).toString();
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_REWRITES; i ++) {
+            String text = FileUtilities.fromFileCleaned(path);
+            FileUtilities.toFile(text + line + FileUtilities.EOL, path);
+        }
+        return (System.nanoTime() - start) / TIMED_REWRITES;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Compares the heap used by QuestionHistory files loaded into StaticQuestionHistory columns with the same files
+ * loaded as one StaticQuestionAnswerRecord per answer, as histories used to be kept. Heap use is measured after
+ * garbage collection, so run it with nothing else in the process and a heap large enough for both at once.
+ */
+public class HistoryMemoryBenchmark {
+    private static final String HEADER = "Timestamp\tDuration\tCorrectness\tResponse";
+    private static final int GC_ROUNDS = 5;
+
+    /**
+     * Write history files, load them both ways and report the heap each way uses per answer
+     * @param args Path to a new directory to write the files in, then optionally the number of files and answers per
+     *             file
+     * @throws Exception Thrown if the files cannot be written or read
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 && args.length != 3) {
+            System.out.println("Usage: HistoryMemoryBenchmark <path to new directory> [<histories> <answers>]");
+            System.exit(1);
+        }
+        int numHistories = args.length == 3 ? Integer.parseInt(args[1]) : 100;
+        int numAnswers = args.length == 3 ? Integer.parseInt(args[2]) : 3000;
+        if (new File(args[0]).exists())
+            throw new Exception(args[0] + " already exists");
+        new File(args[0]).mkdirs();
+
+        StringBuilder text = new StringBuilder(HEADER).append(FileUtilities.EOL);
+        for (int a = 0; a < numAnswers; a ++) {
+            text.append(String.format("2016-%02d-%02dT10:%02d:%02d.%03d\t%d\t", a / 28 % 12 + 1, a % 28 + 1, a % 60,
+                    a % 59, a % 1000, a % 40 + 1)).append(a % 3 == 0 ? "w\tWrong " : "r\tRight ").append(a % 50)
+                    .append(FileUtilities.EOL);
+        }
+        String[] paths = new String[numHistories];
+        for (int h = 0; h < numHistories; h ++) {
+            paths[h] = args[0] + "/Question " + h + ".txt";
+            FileUtilities.toFile(text.toString(), paths[h]);
+        }
+        StaticQuestion question = new StaticQuestion(new String[] {"Right"}, "Benchmark", false, new char[0]);
+        long total = (long) numHistories * numAnswers;
+
+        long before = usedMemory();
+        ArrayList<ArrayList<StaticQuestionAnswerRecord>> records = new ArrayList<>(numHistories);
+        for (String path : paths)
+            records.add(BinaryHistoryFile.readHistory(path));
+        long recordBytes = usedMemory() - before;
+
+        before = usedMemory();
+        ArrayList<StaticQuestionHistory> histories = new ArrayList<>(numHistories);
+        for (String path : paths)
+            histories.add(new StaticQuestionHistory(question, path));
+        long columnBytes = usedMemory() - before;
+
+        // Keep both alive until both have been measured
+        if (records.size() != histories.size())
+            throw new Exception("Not every history was loaded");
+        System.out.println(numHistories + " histories of " + numAnswers + " answers (" + total + " answers)");
+        System.out.println("Records: " + recordBytes / 1024 + " KiB, " + recordBytes / total + " bytes per answer");
+        System.out.println("Columns: " + columnBytes / 1024 + " KiB, " + columnBytes / total + " bytes per answer");
+    }
+
+    /**
+     * Get the heap in use after collecting garbage several times
+     * @return Bytes of heap in use
+     * @throws Exception Thrown if the thread is interrupted while waiting for the collector
+     */
+    private static long usedMemory() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i ++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
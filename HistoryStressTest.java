@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Records answers to one QuestionHistory file from many threads at once, as concurrent sessions of a Student do, and
+ * checks that none were lost, duplicated or garbled. Several copies may run at once against the same file, each with
+ * its own label, to check appends between processes too.
+ */
+public class HistoryStressTest {
+    private static final String HEADER = "Timestamp\tDuration\tCorrectness\tResponse";
+
+    /**
+     * Record answers from several threads through one shared QuestionHistory, then read the file back and check that
+     * every answer this run made is in it exactly once
+     * @param args Path to the history file, which is created if missing; number of threads; answers per thread; and
+     *             a label, different for each copy run at once
+     * @throws Exception Thrown if an answer cannot be recorded or the file cannot be read back
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4) {
+            System.out.println("Usage: HistoryStressTest <history file> <threads> <answers per thread> <label>");
+            System.exit(1);
+        }
+        final String path = args[0];
+        final int numThreads = Integer.parseInt(args[1]);
+        final int numAnswers = Integer.parseInt(args[2]);
+        final String label = args[3];
+        // When several copies run at once, the file should exist before they start
+        if (!FileUtilities.fileExists(path))
+            FileUtilities.toFile(HEADER + FileUtilities.EOL, path);
+
+        StaticQuestion question = new StaticQuestion(new String[] {"right"}, "Stress", false, new char[0]);
+        final StaticQuestionHistory history = new StaticQuestionHistory(question, path);
+        int before = history.getResponseCount();
+
+        ExecutorService threads = Executors.newFixedThreadPool(numThreads);
+        ArrayList<Future<Object>> futures = new ArrayList<>(numThreads);
+        long begin = System.nanoTime();
+        for (int t = 0; t < numThreads; t ++) {
+            final int thread = t;
+            futures.add(threads.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    for (int i = 0; i < numAnswers; i ++)
+                        history.addResponse(label + "-" + thread + "-" + i, Duration.ofSeconds(1), i % 2 == 0, path);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Object> future : futures)
+                future.get();
+        } finally {
+            threads.shutdown();
+        }
+        long elapsed = System.nanoTime() - begin;
+        int recorded = history.getResponseCount() - before;
+
+        // Reading the file back fails if any line was garbled by an interleaved write
+        StaticQuestionHistory reread = new StaticQuestionHistory(question, path);
+        boolean[][] found = new boolean[numThreads][numAnswers];
+        int duplicates = 0;
+        String prefix = label + "-";
+        for (int i = 0; i < reread.getResponseCount(); i ++) {
+            String response = reread.getResponse(i).getResponse();
+            if (!response.startsWith(prefix))
+                continue;
+            String[] parts = Utilities.stringSplit(response.substring(prefix.length()), '-');
+            int thread = Integer.parseInt(parts[0]);
+            int answer = Integer.parseInt(parts[1]);
+            if (found[thread][answer])
+                duplicates ++;
+            found[thread][answer] = true;
+        }
+        int lost = 0;
+        for (boolean[] threadFound : found)
+            for (boolean f : threadFound)
+                if (!f)
+                    lost ++;
+
+        int expected = numThreads * numAnswers;
+        System.out.println(label + ": " + numThreads + " threads recorded " + recorded + " of " + expected
+                + " answers in " + elapsed / 1000000 + " ms; the file holds " + reread.getResponseCount()
+                + " answers in all");
+        System.out.println(label + ": " + lost + " lost, " + duplicates + " duplicated");
+        if (recorded != expected || lost != 0 || duplicates != 0)
+            System.exit(1);
+    }
+}
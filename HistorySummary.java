@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/**
+ * The statistics a StaticQuestionHistory needs for mastery, saved so that a Student can log in without reading every
+ * history file. A summary records how much of the history file it covers, so that responses appended afterwards can
+ * be folded in, and it is only trusted while the file still begins the way it did when the summary was made. The
+ * binary archive is checked by its length and modification time. The journal is only ever appended to, so if it has
+ * the covered length it must also have the same modification time, and if it has grown, the last block the summary
+ * covers must be unchanged; this reads at most one block however long the history is.
+ *
+ * As a line of the Student's manifest, the fields are separated by tabs:
+ *   file name, length and modification time of the text journal covered, CRC32 of the last block covered, length
+ *   and modification time of the binary archive (-1 and 0 if there is none), epoch second the summary was made at,
+ *   number of responses, longest span in days between correct responses, epoch second and nanosecond of the last
+ *   correct response (- if none), and the responses young enough to count towards mastery as second.nanosecond.r|w
+ *   separated by commas (- if none)
+ */
+public class HistorySummary {
+    private static final int TAIL_CHECK_BYTES = 4096;
+
+    private String fileName;
+    private long textLength;
+    private long textModified;
+    private long tailChecksum;
+    private long archiveLength;
+    private long archiveModified;
+    private long savedAt;
+    private int count;
+    private int maxSpan;
+    private LocalDateTime lastCorrect;
+    private long[] recentSeconds;
+    private int[] recentNanos;
+    private boolean[] recentCorrect;
+
+    /**
+     * Constructor that summarizes a history as it is now
+     * @param textPath Path to the text journal of the history
+     * @param inTextLength Length in bytes of the journal the history has read
+     * @param inArchiveLength Length of the binary archive the history has read, or -1 if there was none
+     * @param inArchiveModified Modification time of the binary archive, or 0 if there was none
+     * @param inCount Number of responses in the history
+     * @param inMaxSpan Longest span in days between consecutive correct responses
+     * @param inLastCorrect Timestamp of the last correct response, or null if there is none
+     * @param inRecentSeconds Epoch seconds of the responses that can still count towards mastery
+     * @param inRecentNanos Nanoseconds of those responses
+     * @param inRecentCorrect Whether each of those responses was right
+     * @throws Exception Thrown if the journal cannot be read
+     */
+    public HistorySummary(String textPath, long inTextLength, long inArchiveLength, long inArchiveModified, int inCount,
+                          int inMaxSpan, LocalDateTime inLastCorrect, long[] inRecentSeconds, int[] inRecentNanos,
+                          boolean[] inRecentCorrect) throws Exception {
+        fileName = new File(textPath).getName();
+        textLength = inTextLength;
+        textModified = new File(textPath).lastModified();
+        tailChecksum = getTailChecksum(textPath, textLength);
+        archiveLength = inArchiveLength;
+        archiveModified = inArchiveModified;
+        savedAt = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        count = inCount;
+        maxSpan = inMaxSpan;
+        lastCorrect = inLastCorrect;
+        recentSeconds = inRecentSeconds;
+        recentNanos = inRecentNanos;
+        recentCorrect = inRecentCorrect;
+    }
+
+    /**
+     * Constructor that reads a summary from a line of a manifest
+     * @param line Line of the manifest
+     * @throws Exception Thrown if the line is not a summary
+     */
+    public HistorySummary(String line) throws Exception {
+        String[] fields = Utilities.stringSplit(line, '\t');
+        if (fields.length != 11)
+            throw new Exception("Malformed history summary: " + line);
+        fileName = fields[0];
+        textLength = Long.parseLong(fields[1]);
+        textModified = Long.parseLong(fields[2]);
+        tailChecksum = Long.parseLong(fields[3]);
+        archiveLength = Long.parseLong(fields[4]);
+        archiveModified = Long.parseLong(fields[5]);
+        savedAt = Long.parseLong(fields[6]);
+        count = Integer.parseInt(fields[7]);
+        maxSpan = Integer.parseInt(fields[8]);
+        if (fields[9].equals("-"))
+            lastCorrect = null;
+        else {
+            int dot = fields[9].indexOf('.');
+            lastCorrect = LocalDateTime.ofEpochSecond(Long.parseLong(fields[9].substring(0, dot)),
+                    Integer.parseInt(fields[9].substring(dot + 1)), ZoneOffset.UTC);
+        }
+        String[] recent = fields[10].equals("-") ? new String[0] : Utilities.stringSplit(fields[10], ',');
+        recentSeconds = new long[recent.length];
+        recentNanos = new int[recent.length];
+        recentCorrect = new boolean[recent.length];
+        for (int i = 0; i < recent.length; i ++) {
+            String[] parts = Utilities.stringSplit(recent[i], '.');
+            recentSeconds[i] = Long.parseLong(parts[0]);
+            recentNanos[i] = Integer.parseInt(parts[1]);
+            recentCorrect[i] = parts[2].equals("r");
+        }
+    }
+
+    /**
+     * Check whether the summary still describes the start of a history: the archive is unchanged, the journal is
+     * unchanged or has only grown past an unchanged last covered block, and the clock has not gone back since the
+     * summary was made
+     * @param textPath Path to the text journal of the history
+     * @return true if the summary can be used, false if the history must be read in full
+     * @throws Exception Thrown if the journal cannot be read
+     */
+    public boolean isCurrent(String textPath) throws Exception {
+        File archive = new File(BinaryHistoryFile.getArchivePath(textPath));
+        long currentArchiveLength = archive.exists() ? archive.length() : -1;
+        long currentArchiveModified = archive.exists() ? archive.lastModified() : 0;
+        if (currentArchiveLength != archiveLength || currentArchiveModified != archiveModified)
+            return false;
+        File text = new File(textPath);
+        long currentTextLength = text.length();
+        if (currentTextLength < textLength)
+            return false;
+        // A journal of the same length with a new modification time was rewritten, not appended to
+        if (currentTextLength == textLength && text.lastModified() != textModified)
+            return false;
+        if (currentTextLength > textLength && getTailChecksum(textPath, textLength) != tailChecksum)
+            return false;
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) >= savedAt;
+    }
+
+    /**
+     * Read what has been appended to the journal since the summary was made
+     * @param textPath Path to the text journal of the history
+     * @return Bytes of the journal after those the summary covers
+     * @throws Exception Thrown if the journal cannot be read
+     */
+    public byte[] readNewText(String textPath) throws Exception {
+        FileChannel channel = FileChannel.open(Paths.get(textPath), StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, channel.size() - textLength));
+            while (buffer.hasRemaining())
+                if (channel.read(buffer, textLength + buffer.position()) <= 0)
+                    break;
+            return buffer.array();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Compute the CRC32 of the last block of a prefix of a file
+     * @param path Path to the file
+     * @param length Length of the prefix
+     * @return CRC32 of the up to TAIL_CHECK_BYTES bytes that end the prefix
+     * @throws Exception Thrown if the file cannot be read
+     */
+    private static long getTailChecksum(String path, long length) throws Exception {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            long start = Math.max(0, length - TAIL_CHECK_BYTES);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (length - start));
+            while (buffer.hasRemaining())
+                if (channel.read(buffer, start + buffer.position()) <= 0)
+                    break;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.position());
+            return crc.getValue();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Get the name of the history file summarized
+     * @return File name, relative to the Student's directory
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the length of the journal the summary covers
+     * @return Length in bytes
+     */
+    public long getTextLength() {
+        return textLength;
+    }
+
+    /**
+     * Get the length of the binary archive the summary covers
+     * @return Length in bytes, or -1 if there was no archive
+     */
+    public long getArchiveLength() {
+        return archiveLength;
+    }
+
+    /**
+     * Get the modification time of the binary archive the summary covers
+     * @return Modification time, or 0 if there was no archive
+     */
+    public long getArchiveModified() {
+        return archiveModified;
+    }
+
+    /**
+     * Get the number of responses in the history
+     * @return Number of responses
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the longest span between consecutive correct responses
+     * @return Span in days
+     */
+    public int getMaxSpan() {
+        return maxSpan;
+    }
+
+    /**
+     * Get when the question was last answered correctly
+     * @return Timestamp of the last correct response, or null if there is none
+     */
+    public LocalDateTime getLastCorrect() {
+        return lastCorrect;
+    }
+
+    /**
+     * Get the number of responses that can still count towards mastery
+     * @return Number of recent responses
+     */
+    public int getRecentCount() {
+        return recentSeconds.length;
+    }
+
+    /**
+     * Get the epoch second of a recent response
+     * @param i Position among the recent responses, oldest first
+     * @return Epoch second of the response
+     */
+    public long getRecentSecond(int i) {
+        return recentSeconds[i];
+    }
+
+    /**
+     * Get the nanosecond of a recent response
+     * @param i Position among the recent responses, oldest first
+     * @return Nanosecond of the response
+     */
+    public int getRecentNano(int i) {
+        return recentNanos[i];
+    }
+
+    /**
+     * Get whether a recent response was right
+     * @param i Position among the recent responses, oldest first
+     * @return true if the response was right, false otherwise
+     */
+    public boolean getRecentCorrect(int i) {
+        return recentCorrect[i];
+    }
+
+    /**
+     * Get the summary as a line of a manifest
+     * @return Line of the manifest, without the EOL
+     */
+    public String toString() {
+        StringBuilder line = new StringBuilder();
+        line.append(fileName).append('\t').append(textLength).append('\t').append(textModified).append('\t')
+                .append(tailChecksum).append('\t').append(archiveLength).append('\t').append(archiveModified)
+                .append('\t').append(savedAt).append('\t').append(count).append('\t').append(maxSpan).append('\t');
+        if (lastCorrect == null)
+            line.append('-');
+        else
+            line.append(lastCorrect.toEpochSecond(ZoneOffset.UTC)).append('.').append(lastCorrect.getNano());
+        line.append('\t');
+        if (recentSeconds.length == 0)
+            line.append('-');
+        for (int i = 0; i < recentSeconds.length; i ++) {
+            if (i > 0)
+                line.append(',');
+            line.append(recentSeconds[i]).append('.').append(recentNanos[i]).append('.')
+                    .append(recentCorrect[i] ? 'r' : 'w');
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound queue of emails delivered by a background thread, so that sending a report never blocks the user. Queued
+ * emails are spooled to a directory until they are delivered, so they survive a restart. Several processes may share a
+ * spool; each email is claimed by renaming its spool file before it is sent, so only one of them delivers it. Spooled
+ * emails that do not fit in the queue are picked up from the spool once it drains.
+ */
+public class MailQueue {
+    private static final int CAPACITY = 100;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_RETRY_DELAY = 1000;       // Milliseconds; doubled after each failed attempt
+    private static final long STALE_CLAIM_AGE = 60 * 60 * 1000; // Claims older than this were left by a crash
+    private static final long SENDER_IDLE_TIME = 60 * 1000;     // Milliseconds the sender waits for mail before exiting
+
+    private static HashMap<String, MailQueue> queuesBySpool = new HashMap<>();
+
+    private MailTransport transport;
+    private MailTransport retiredTransport; // Replaced while the sender was using it; closed once it is done
+    private String spoolPath;
+    private ArrayBlockingQueue<OutgoingMail> queue;
+    private int pending;                // Emails accepted but not yet delivered or given up on
+    private long spoolCounter;
+    private Thread sender;              // Null while there is nothing to send
+    private boolean spoolOverflowed;    // Whether the spool held emails that did not fit in the queue
+    private HashSet<String> givenUp;    // Names of spool files this queue failed to deliver, left for the next start
+
+    /**
+     * Constructor that creates a queue, first queueing any emails left in the spool directory. The sender thread only
+     * runs while there are emails to deliver, so a queue that is never used costs no thread.
+     * @param inTransport Transport used to deliver the emails
+     * @param inSpoolPath Directory to spool emails in, or null to keep them only in memory
+     */
+    public MailQueue(MailTransport inTransport, String inSpoolPath) {
+        transport = inTransport;
+        retiredTransport = null;
+        spoolPath = inSpoolPath;
+        queue = new ArrayBlockingQueue<>(CAPACITY);
+        pending = 0;
+        spoolCounter = 0;
+        spoolOverflowed = false;
+        givenUp = new HashSet<>();
+
+        loadSpool();
+        sender = null;
+        if (pending > 0)
+            startSender();
+    }
+
+    /**
+     * Queue the emails in the spool directory that are not queued yet, including those left claimed by a process that
+     * died, as far as there is room; the caller must hold the queue's lock or be the constructor
+     */
+    private void loadSpool() {
+        spoolOverflowed = false;
+        if (spoolPath == null)
+            return;
+        File spool = new File(spoolPath);
+        spool.mkdirs();
+        File[] spooled = spool.listFiles();
+        if (spooled == null)
+            return;
+        // Spool file names start with the time they were written, so this is the order they were queued in
+        Arrays.sort(spooled);
+        long now = System.currentTimeMillis();
+        for (File f : spooled) {
+            try {
+                File unclaimed = null;
+                if (f.getName().endsWith(".mail") && !givenUp.contains(f.getName()))
+                    unclaimed = f;
+                else if (f.getName().endsWith(".mail" + OutgoingMail.CLAIM_SUFFIX)
+                        && now - f.lastModified() > STALE_CLAIM_AGE)
+                    // The process that claimed the email died before it finished; only the process that moves the
+                    // file back gets to queue it
+                    unclaimed = OutgoingMail.unclaim(f);
+                if (unclaimed == null)
+                    continue;
+                if (queue.remainingCapacity() == 0) {
+                    spoolOverflowed = true;
+                    return;
+                }
+                queue.offer(new OutgoingMail(unclaimed));
+                pending ++;
+            } catch (Exception e) {
+                // Leave unreadable spool files for a person to look at
+            }
+        }
+    }
+
+    /**
+     * Start the sender thread; the caller must hold the queue's lock and there must be no sender running
+     */
+    private void startSender() {
+        sender = new Thread(new Runnable() {
+            public void run() {
+                deliverUntilIdle();
+            }
+        }, "MailQueue sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Get the queue that spools to a directory, creating it if there is none yet, so that everything sharing a spool
+     * also shares one sender and one connection. A transport configured differently from the queue's, as after the
+     * root config is edited, replaces it.
+     * @param spoolPath Directory to spool emails in
+     * @param transport Transport to deliver the queue's emails with
+     * @return Queue for the spool directory
+     */
+    public static synchronized MailQueue getInstance(String spoolPath, MailTransport transport) {
+        String key;
+        try {
+            key = new File(spoolPath).getCanonicalPath();
+        } catch (Exception e) {
+            key = new File(spoolPath).getAbsolutePath();
+        }
+        MailQueue mq = queuesBySpool.get(key);
+        if (mq == null) {
+            mq = new MailQueue(transport, spoolPath);
+            queuesBySpool.put(key, mq);
+        } else
+            mq.setTransport(transport);
+        return mq;
+    }
+
+    /**
+     * Deliver emails through a different transport from now on, unless it is configured the same as the current one
+     * @param inTransport Transport to use
+     */
+    private synchronized void setTransport(MailTransport inTransport) {
+        if (transport.equals(inTransport))
+            return;
+        // The sender may be in the middle of an email, so it closes the old transport when it is done with it
+        if (sender == null)
+            transport.close();
+        else {
+            if (retiredTransport != null)
+                retiredTransport.close();
+            retiredTransport = transport;
+        }
+        transport = inTransport;
+    }
+
+    /**
+     * Queue an email for delivery, spooling it first
+     * @param mail Email to deliver
+     * @return true if the email was queued, false if the queue is full or the email could not be spooled
+     */
+    public boolean enqueue(OutgoingMail mail) {
+        synchronized (this) {
+            try {
+                if (spoolPath != null)
+                    mail.spool(new File(spoolPath + "/" + System.currentTimeMillis() + "-" + spoolCounter ++ + ".mail"));
+            } catch (Exception e) {
+                return false;
+            }
+            if (!queue.offer(mail)) {
+                mail.unspool();
+                return false;
+            }
+            pending ++;
+            if (sender == null)
+                startSender();
+        }
+        return true;
+    }
+
+    /**
+     * Wait until every queued email has been dealt with, or until the timeout passes. Emails still undelivered
+     * remain spooled and will be sent after the next start.
+     * @param timeout Longest time to wait, in milliseconds
+     * @return true if every email was dealt with, false if the timeout passed first
+     */
+    public synchronized boolean flush(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (pending > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return false;
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deliver queued emails one at a time, until none has arrived for a while
+     */
+    private void deliverUntilIdle() {
+        while (true) {
+            OutgoingMail mail;
+            try {
+                mail = queue.poll(SENDER_IDLE_TIME, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                mail = null;
+            }
+            if (mail == null) {
+                // enqueue checks for a sender under the same lock, so no email is left without one
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        sender = null;
+                        transport.close();
+                        return;
+                    }
+                }
+                continue;
+            }
+            MailTransport current;
+            synchronized (this) {
+                current = transport;
+            }
+            deliver(mail, current);
+            synchronized (this) {
+                if (retiredTransport != null) {
+                    retiredTransport.close();
+                    retiredTransport = null;
+                }
+                pending --;
+                if (queue.isEmpty() && spoolOverflowed)
+                    loadSpool();
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Deliver one email, retrying with exponential backoff (waits of 1, 2, 4 and 8 seconds between the attempts); an
+     * email that keeps failing stays in the spool
+     * @param mail Email to deliver
+     * @param transport Transport to deliver it with
+     */
+    private void deliver(OutgoingMail mail, MailTransport transport) {
+        // Another process sharing the spool may already have sent the email or be sending it
+        if (!mail.claim())
+            return;
+        long delay = INITIAL_RETRY_DELAY;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt ++) {
+            try {
+                transport.send(mail);
+                mail.unspool();
+                return;
+            } catch (Exception e) {
+                // Start over with a fresh connection on the next attempt
+                transport.close();
+            }
+            if (attempt == MAX_ATTEMPTS)
+                break;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                break;
+            }
+            delay *= 2;
+        }
+        mail.release();
+        synchronized (this) {
+            // Picking the email up again from the spool would retry it forever
+            givenUp.add(mail.getSpoolFileName());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+/**
+ * Interface for anything that can deliver emails, so that MailQueue can be used with a real SMTP server or a stand-in
+ */
+public interface MailTransport {
+    /**
+     * Deliver an email, connecting first if necessary; the connection may be kept open for the next email
+     * @param mail Email to deliver
+     * @throws Exception Thrown if the email could not be delivered
+     */
+    void send(OutgoingMail mail) throws Exception;
+
+    /**
+     * Close any open connection; the next send will reconnect
+     */
+    void close();
+}
@@ -33,36 +33,59 @@ import javax.mail.internet.MimeMessage;
  * Object for sending email to teachers
  */
 public class Mailer {
-    private String username;
-    private String password;
     private String recipient;
+    private MailQueue outbox;
 
     /**
-     * Constructor that initializes instance fields from parameters
+     * Constructor that initializes instance fields from parameters, delivering through GMail from a queue of its own;
+     * the queue only runs a sender thread while it has emails to deliver
      * @param inUsername Username of account (Gmail) to send emails from
      * @param inPassword Password of account (Gmail) to send emails from
      * @param inRecipient Email address to send email to
      */
     public Mailer(String inUsername, String inPassword, String inRecipient) {
-        username = inUsername;
-        password = inPassword;
+        this(inRecipient, new MailQueue(new SmtpMailTransport(inUsername, inPassword), null));
+    }
+
+    /**
+     * Constructor that sends email through an existing queue
+     * @param inRecipient Email address to send email to
+     * @param inOutbox Queue that delivers the emails
+     */
+    public Mailer(String inRecipient, MailQueue inOutbox) {
         recipient = inRecipient;
+        outbox = inOutbox;
     }
 
     /**
-     * Send Student progress report to the teacher email address used to create object
+     * Queue a Student progress report for delivery to the teacher email address used to create object
      * @param report Text of report to send
      * @param student Student whose information is being reported
-     * @return true if email sent successfully, false otherwise
+     * @return true if the email was queued for delivery, false otherwise
      */
     public boolean sendReport (String report, Student student) {
-        try {
-            String subject = "EducationApplication Progress Report for: " + student.getName();
-            Send(username, password, recipient, "", subject, report);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        String subject = "EducationApplication Progress Report for: " + student.getName();
+        return outbox.enqueue(new OutgoingMail(recipient, subject, report));
+    }
+
+    /**
+     * Queue a report on a whole class for delivery to the teacher email address used to create object
+     * @param report Text of report to send
+     * @param className Name of the class being reported on
+     * @return true if the email was queued for delivery, false otherwise
+     */
+    public boolean sendClassReport(String report, String className) {
+        String subject = "EducationApplication Class Progress Report for: " + className;
+        return outbox.enqueue(new OutgoingMail(recipient, subject, report));
+    }
+
+    /**
+     * Wait for queued emails to be delivered
+     * @param timeout Longest time to wait, in milliseconds
+     * @return true if every queued email was dealt with, false if the timeout passed first
+     */
+    public boolean flush(long timeout) {
+        return outbox.flush(timeout);
     }
 
     // Source: https://stackoverflow.com/questions/3649014/send-email-using-java
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * An answer a Student gave away from the program, such as on paper, waiting to be graded and recorded. As a line of an
+ * import file, the fields are separated by tabs: Student name, question text, timestamp (ISO-8601 local date and
+ * time), duration in seconds, and response.
+ */
+public class OfflineAnswer {
+    private String studentName;
+    private String questionText;
+    private LocalDateTime timestamp;
+    private Duration duration;
+    private String response;
+
+    /**
+     * Constructor that creates an answer from scratch
+     * @param inStudentName Name of the Student, as listed in the class index.txt
+     * @param inQuestionText Text of the Question answered
+     * @param inTimestamp When the answer was given
+     * @param inDuration Time the Student spent on the Question
+     * @param inResponse Student's answer
+     */
+    public OfflineAnswer(String inStudentName, String inQuestionText, LocalDateTime inTimestamp, Duration inDuration,
+                         String inResponse) {
+        studentName = inStudentName;
+        questionText = inQuestionText;
+        timestamp = inTimestamp;
+        duration = inDuration;
+        response = inResponse;
+    }
+
+    /**
+     * Constructor that reads an answer from a line of an import file
+     * @param line Line of the import file
+     * @throws Exception Thrown if the line does not have all five fields or a field cannot be parsed
+     */
+    public OfflineAnswer(String line) throws Exception {
+        String[] fields = Utilities.stringSplit(line, '\t');
+        if (fields.length != 5)
+            throw new Exception("Malformed offline answer: " + line);
+        studentName = fields[0];
+        questionText = fields[1];
+        timestamp = LocalDateTime.parse(fields[2]);
+        duration = Duration.ofSeconds(Long.parseLong(fields[3]));
+        response = fields[4];
+    }
+
+    /**
+     * Get the name of the Student who gave the answer
+     * @return Name of the Student
+     */
+    public String getStudentName() {
+        return studentName;
+    }
+
+    /**
+     * Get the text of the Question answered
+     * @return Text of the Question
+     */
+    public String getQuestionText() {
+        return questionText;
+    }
+
+    /**
+     * Get when the answer was given
+     * @return Timestamp of the answer
+     */
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the time the Student spent on the Question
+     * @return Duration of the answer
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the Student's answer
+     * @return Student's answer
+     */
+    public String getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An email waiting to be delivered, which can be written to and read back from a spool file
+ */
+public class OutgoingMail {
+    private static final String BODY_HEADER = "EDUCATIONAPPLICATION MAIL BODY";
+    public static final String CLAIM_SUFFIX = ".sending";
+
+    private String recipient;
+    private String subject;
+    private String body;
+    private File spoolFile;
+
+    /**
+     * Constructor that creates a new email from scratch
+     * @param inRecipient Email address to send the email to
+     * @param inSubject Subject of the email
+     * @param inBody Text of the email
+     */
+    public OutgoingMail(String inRecipient, String inSubject, String inBody) {
+        recipient = inRecipient;
+        subject = inSubject;
+        body = inBody;
+        spoolFile = null;
+    }
+
+    /**
+     * Constructor that reads an email back from its spool file
+     * @param inSpoolFile Spool file the email was written to
+     * @throws Exception Thrown if the file is missing or improperly formatted
+     */
+    public OutgoingMail(File inSpoolFile) throws Exception {
+        String text = FileUtilities.fromFile(inSpoolFile.getPath());
+        recipient = FileUtilities.findDataFromLabel(text, "Recipient");
+        subject = FileUtilities.findDataFromLabel(text, "Subject");
+        byte[] bodyBytes = FileUtilities.fromEncapsulation(text, BODY_HEADER);
+        if (recipient == null || subject == null || bodyBytes == null)
+            throw new Exception("Spool file " + inSpoolFile.getPath() + " is improperly formatted");
+        body = new String(bodyBytes, FileUtilities.CHARSET);
+        spoolFile = inSpoolFile;
+    }
+
+    /**
+     * Write the email to a spool file so that it survives a restart until it is delivered
+     * @param inSpoolFile File to write the email to
+     * @throws Exception Thrown if the file cannot be written
+     */
+    public void spool(File inSpoolFile) throws Exception {
+        // The body is Base64-armored because it may contain anything, including lines that look like labels
+        String text = "Recipient: " + recipient + FileUtilities.EOL + "Subject: " + subject + FileUtilities.EOL
+                + FileUtilities.makeEncapsulation(body.getBytes(FileUtilities.CHARSET), BODY_HEADER);
+        FileUtilities.toFile(text, inSpoolFile.getPath());
+        spoolFile = inSpoolFile;
+    }
+
+    /**
+     * Claim the email for delivery by renaming its spool file, so that no other process sharing the spool sends it too.
+     * The claimed file's modification time is the time of the claim, which is how other processes tell a claim in
+     * progress from one left by a crash.
+     * @return true if this process now owns the email, false if another process has claimed or delivered it
+     */
+    public boolean claim() {
+        if (spoolFile == null)
+            return true;
+        // A claimed name may belong to another process, so only a move from the unclaimed name makes a claim
+        if (spoolFile.getName().endsWith(CLAIM_SUFFIX))
+            return false;
+        File claimed = new File(spoolFile.getPath() + CLAIM_SUFFIX);
+        // A rename keeps the modification time, so stamp the file first; an email that waited in the spool must not
+        // look like a stale claim for even a moment
+        spoolFile.setLastModified(System.currentTimeMillis());
+        try {
+            // Only one process can move the file away from its old name
+            Files.move(spoolFile.toPath(), claimed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            return false;
+        }
+        claimed.setLastModified(System.currentTimeMillis());
+        spoolFile = claimed;
+        return true;
+    }
+
+    /**
+     * Return a spool file left claimed by a process that died to the spool, so that it can be claimed again
+     * @param claimed Spool file whose name ends in CLAIM_SUFFIX
+     * @return The spool file under its unclaimed name, or null if another process returned, claimed or delivered it
+     * first
+     */
+    public static File unclaim(File claimed) {
+        String path = claimed.getPath();
+        if (!path.endsWith(CLAIM_SUFFIX))
+            return null;
+        File unclaimed = new File(path.substring(0, path.length() - CLAIM_SUFFIX.length()));
+        try {
+            Files.move(claimed.toPath(), unclaimed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            return null;
+        }
+        return unclaimed;
+    }
+
+    /**
+     * Give up a claim on the email, returning its spool file to the spool to be sent after the next start
+     */
+    public void release() {
+        if (spoolFile == null)
+            return;
+        File unclaimed = unclaim(spoolFile);
+        if (unclaimed != null)
+            spoolFile = unclaimed;
+    }
+
+    /**
+     * Remove the email's spool file, once it has been delivered
+     */
+    public void unspool() {
+        if (spoolFile != null)
+            spoolFile.delete();
+        spoolFile = null;
+    }
+
+    /**
+     * Get the name of the email's spool file
+     * @return Name of the spool file, without its directory, or null if the email is not spooled
+     */
+    public String getSpoolFileName() {
+        return spoolFile == null ? null : spoolFile.getName();
+    }
+
+    /**
+     * Get the email address the email will be sent to
+     * @return Recipient's email address
+     */
+    public String getRecipient() {
+        return recipient;
+    }
+
+    /**
+     * Get the subject of the email
+     * @return Subject of the email
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Get the text of the email
+     * @return Text of the email
+     */
+    public String getBody() {
+        return body;
+    }
+}
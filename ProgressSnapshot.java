@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.Arrays;
+
+/**
+ * A Student's progress on every tag, computed in one pass over their QuestionHistories
+ */
+public class ProgressSnapshot {
+    private TagIndex tagIndex;
+    private String[] tags;
+    private double[] tagMastery;
+    private double overallMastery;
+
+    /**
+     * Constructor that computes the Student's progress, asking each QuestionHistory for its mastery only once
+     * @param student Student whose progress to compute
+     */
+    public ProgressSnapshot(Student student) {
+        QuestionIndex questionIndex = student.getQuestionIndex();
+        tagIndex = questionIndex.getTagIndex();
+        tags = tagIndex.getTags();
+        double[] sums = new double[tags.length];
+        int[] counts = new int[tags.length];
+        // Ordinal of the last Question counted for each tag, so a tag listed twice on a Question counts once
+        int[] lastCounted = new int[tags.length];
+        Arrays.fill(lastCounted, -1);
+        double overallSum = 0;
+        int overallCount = 0;
+
+        for (int i = 0; i < questionIndex.size(); i ++) {
+            QuestionHistory qh = student.getQuestionHistory(i);
+            if (qh == null)
+                continue;
+            double mastery = qh.getPercentMastered();
+            overallSum += mastery;
+            overallCount ++;
+            for (String tag : qh.getQuestion().getTags()) {
+                int id = tagIndex.getTagId(tag);
+                if (lastCounted[id] == i)
+                    continue;
+                lastCounted[id] = i;
+                sums[id] += mastery;
+                counts[id] ++;
+            }
+        }
+
+        tagMastery = new double[tags.length];
+        for (int i = 0; i < tags.length; i ++)
+            tagMastery[i] = sums[i] / counts[i];
+        overallMastery = overallSum / overallCount;
+    }
+
+    /**
+     * Get the tags progress was computed for
+     * @return Array of all tags, in the order of the TagIndex
+     */
+    public String[] getTags() {
+        return tags.clone();
+    }
+
+    /**
+     * Get the Student's progress on all Questions as a decimal in the interval [0,1]
+     * @return Average of the Student's progress on all Questions
+     */
+    public double getPercentMastered() {
+        return overallMastery;
+    }
+
+    /**
+     * Get the Student's progress on the Questions with a tag as a decimal in the interval [0,1]
+     * @param tag Tag whose Questions to average
+     * @return Average of the Student's progress on Questions with the tag
+     */
+    public double getPercentMastered(String tag) {
+        int id = tagIndex.getTagId(tag);
+        if (id < 0 || id >= tagMastery.length)
+            return Double.NaN;
+        else
+            return tagMastery[id];
+    }
+
+    /**
+     * Make a table of the Student's progress on every tag, ready for UserInterfaceUtilities.makeTable
+     * @return Table with a heading row followed by a row for each tag
+     */
+    public String[][] makeTable() {
+        // Table Headings: Tag, Percent Mastery
+        String[][] table = new String[tags.length + 1][3];
+        table[0][0] = "Tag";
+        table[0][1] = "Percent Mastery";
+        table[0][2] = "Progress Bar";
+
+        for (int i = 0; i < tags.length; i ++) {
+            int r = i + 1;
+            int percentMastery = (int) (tagMastery[i] * 100);
+            table[r][0] = tags[i];
+            table[r][1] = "" + percentMastery + "%";
+            table[r][2] = UserInterfaceUtilities.makeProgressBar(10, percentMastery / 100.0);
+        }
+        return table;
+    }
+}
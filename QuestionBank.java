@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The Questions of a class, parsed once and shared by every Student of the class in the process. A bank is not
+ * changed after it is loaded; when a category file changes, the next request for the class loads a new bank.
+ */
+public class QuestionBank {
+    private static final int MAX_CACHED_BANKS = 16;
+    // Access-ordered, so the first entry is the least recently used bank
+    private static LinkedHashMap<String, QuestionBank> banksByClass = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final String pathToClass;
+    private final QuestionIndex questionIndex;
+    private final File[] sourceFiles;
+    private final long[] lastModified;
+
+    /**
+     * Constructor that loads the Questions of a class
+     * @param inPathToClass Path to the class directory
+     * @throws Exception Thrown if a category file is missing or describes an unknown type of Question
+     */
+    private QuestionBank(String inPathToClass) throws Exception {
+        pathToClass = inPathToClass;
+        String[] categories = Utilities.stringSplit(
+                FileUtilities.fromFileCleaned(pathToClass + "/Questions/index.txt"), FileUtilities.EOL);
+        sourceFiles = new File[categories.length + 1];
+        lastModified = new long[sourceFiles.length];
+        sourceFiles[0] = new File(pathToClass + "/Questions/index.txt");
+        for (int i = 0; i < categories.length; i ++)
+            sourceFiles[i + 1] = new File(pathToClass + "/Questions/" + categories[i]);
+        // Times are taken before parsing, so a file changed while it is read makes the bank stale
+        for (int i = 0; i < sourceFiles.length; i ++)
+            lastModified[i] = sourceFiles[i].lastModified();
+        questionIndex = new QuestionIndex(QuizzingEngine.loadQuestions(pathToClass));
+    }
+
+    /**
+     * Get the bank of a class, loading it only if it is not cached or its files have changed since it was loaded
+     * @param pathToClass Path to the class directory
+     * @return Bank of the class's Questions
+     * @throws Exception Thrown if a category file is missing or describes an unknown type of Question
+     */
+    public static synchronized QuestionBank getInstance(String pathToClass) throws Exception {
+        String key = new File(pathToClass).getCanonicalPath();
+        QuestionBank bank = banksByClass.get(key);
+        if (bank == null || !bank.isCurrent()) {
+            bank = new QuestionBank(pathToClass);
+            banksByClass.put(key, bank);
+            Iterator<QuestionBank> leastRecentlyUsed = banksByClass.values().iterator();
+            while (banksByClass.size() > MAX_CACHED_BANKS) {
+                leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * Check whether the files the bank was loaded from are unchanged
+     * @return true if no file has been modified since the bank was loaded, false otherwise
+     */
+    public boolean isCurrent() {
+        for (int i = 0; i < sourceFiles.length; i ++)
+            if (sourceFiles[i].lastModified() != lastModified[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Get the path to the class directory the bank was loaded from
+     * @return Path to the class directory
+     */
+    public String getPathToClass() {
+        return pathToClass;
+    }
+
+    /**
+     * Get all the Questions in the bank
+     * @return New array of the Questions, in the order of the category files
+     */
+    public Question[] getQuestions() {
+        return questionIndex.getQuestions();
+    }
+
+    /**
+     * Get the index used to look up the bank's Questions by their text
+     * @return Index of all the Questions in the bank
+     */
+    public QuestionIndex getQuestionIndex() {
+        return questionIndex;
+    }
+
+    /**
+     * Get the index of the tags of the bank's Questions
+     * @return Index from each tag to the ordinals of the Questions with it
+     */
+    public TagIndex getTagIndex() {
+        return questionIndex.getTagIndex();
+    }
+}
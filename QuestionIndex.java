@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.HashMap;
+
+/**
+ * Index of all the Questions in the system, giving each one a stable ordinal and finding it by its text in constant
+ * time. An index is not changed after it is built, so it can be shared between threads.
+ */
+public class QuestionIndex {
+    private final Question[] questions;
+    private final HashMap<String, Integer> ordinals;
+    private final TagIndex tagIndex;
+
+    /**
+     * Constructor that indexes the provided Questions; each Question's ordinal is its position in the array
+     * @param inQuestions All the Questions in the system
+     */
+    public QuestionIndex(Question[] inQuestions) {
+        questions = inQuestions.clone();
+        ordinals = new HashMap<>(questions.length * 2);
+        tagIndex = new TagIndex(questions);
+        for (int i = 0; i < questions.length; i ++) {
+            // If two Questions share a text, the first one is the one found by that text
+            if (!ordinals.containsKey(questions[i].getQuestionText()))
+                ordinals.put(questions[i].getQuestionText(), i);
+        }
+    }
+
+    /**
+     * Get the ordinal of the Question with the given text
+     * @param questionText Text of the Question
+     * @return Ordinal of the Question, or -1 if no Question has that text
+     */
+    public int getOrdinal(String questionText) {
+        Integer ordinal = ordinals.get(questionText);
+        if (ordinal == null)
+            return -1;
+        else
+            return ordinal;
+    }
+
+    /**
+     * Get the Question with the given text
+     * @param questionText Text of the Question
+     * @return Question with that text, or null if there is none
+     */
+    public Question get(String questionText) {
+        int ordinal = getOrdinal(questionText);
+        if (ordinal < 0)
+            return null;
+        else
+            return questions[ordinal];
+    }
+
+    /**
+     * Get the Question with the given ordinal
+     * @param ordinal Ordinal of the Question
+     * @return Question with that ordinal
+     */
+    public Question get(int ordinal) {
+        return questions[ordinal];
+    }
+
+    /**
+     * Get all the Questions in the index
+     * @return New array of the Questions, in ordinal order
+     */
+    public Question[] getQuestions() {
+        return questions.clone();
+    }
+
+    /**
+     * Get the index of the tags of the Questions
+     * @return Index from each tag to the ordinals of the Questions with it
+     */
+    public TagIndex getTagIndex() {
+        return tagIndex;
+    }
+
+    /**
+     * Get the number of Questions in the index
+     * @return Number of Questions
+     */
+    public int size() {
+        return questions.length;
+    }
+}
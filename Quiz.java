@@ -41,11 +41,7 @@ public abstract class Quiz {
      * @return Array of QuestionHistory objects whose questions have the requested tags
      */
     public QuestionHistory[] getTaggedQuestionHistories(String[] inTags) {
-        ArrayList<QuestionHistory> validQuestionHistories = new ArrayList<>();
-        for (QuestionHistory qh : student.getQuestionHistories()) {
-            if (qh.getQuestion().hasTags(inTags))
-                validQuestionHistories.add(qh);
-        }
+        ArrayList<QuestionHistory> validQuestionHistories = student.getQuestionHistories(inTags);
 
         QuestionHistory[] toReturn = new QuestionHistory[validQuestionHistories.size()];
 
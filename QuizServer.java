@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves quizzes over HTTP so that one process can host a whole lab of Students. Every Student of a class shares the
+ * class's QuestionBank, each Student has one QuizzingEngine however many sessions they open, and requests are
+ * handled concurrently on a thread pool. A Student's engine is closed and forgotten when their last session closes,
+ * and a new session gets a new engine if the class's questions have changed since the engine was created.
+ *
+ * Requests take URL-encoded parameters in the query string or a form body, and replies are plain UTF-8 text:
+ *   POST /session   class, student      -> session ID
+ *   GET  /tags      session             -> one tag per line
+ *   POST /quiz      session, count, tag -> number of questions in the new quiz; tag may be repeated, and order=due
+ *                                          asks the questions due soonest for review instead of the least mastered
+ *   GET  /question  session             -> text of the next question
+ *   POST /answer    session, answer     -> "correct", or "incorrect" followed by the correct answers, one per line
+ *   GET  /progress  session             -> table of the Student's progress
+ *   POST /close     session             -> "closed"
+ * A session that goes unused for longer than the session timeout is closed, as if by /close.
+ */
+public class QuizServer implements HttpHandler {
+    private static final int DEFAULT_SESSION_TIMEOUT = 30 * 60;
+    private static final long MAX_SWEEP_INTERVAL = 60 * 1000;
+    private static final Logger LOGGER = Logger.getLogger(QuizServer.class.getName());
+
+    private String pathToRoot;
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService sweeper;
+    private long sessionTimeout;
+    private ConcurrentHashMap<String, QuizSession> sessions;
+    private ConcurrentHashMap<String, FutureTask<QuizzingEngine>> enginesByStudent;
+    private final Object sessionLock;      // Held while a session is added, or an engine is found unused and evicted
+
+    /**
+     * Constructor that creates a server for a directory tree, without starting it
+     * @param inPathToRoot Path to the root of the directory tree
+     * @param port Port to listen on
+     * @throws Exception Thrown if the port cannot be bound
+     */
+    public QuizServer(String inPathToRoot, int port) throws Exception {
+        this(inPathToRoot, port, DEFAULT_SESSION_TIMEOUT);
+    }
+
+    /**
+     * Constructor that creates a server for a directory tree, without starting it
+     * @param inPathToRoot Path to the root of the directory tree
+     * @param port Port to listen on
+     * @param inSessionTimeout Seconds a session may go unused before it is closed
+     * @throws Exception Thrown if the port cannot be bound
+     */
+    public QuizServer(String inPathToRoot, int port, int inSessionTimeout) throws Exception {
+        pathToRoot = inPathToRoot;
+        sessionTimeout = inSessionTimeout * 1000L;
+        sessions = new ConcurrentHashMap<>();
+        enginesByStudent = new ConcurrentHashMap<>();
+        sessionLock = new Object();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this);
+        // Each request gets a thread for as long as it runs; idle threads are reused and eventually retired
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        sweeper = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Start accepting requests and closing idle sessions
+     */
+    public void start() {
+        long sweepInterval = Math.max(1, Math.min(sessionTimeout, MAX_SWEEP_INTERVAL));
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                closeIdleSessions();
+            }
+        }, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    /**
+     * Close every session that has gone unused for longer than the session timeout
+     */
+    private void closeIdleSessions() {
+        for (Map.Entry<String, QuizSession> entry : sessions.entrySet()) {
+            if (entry.getValue().isIdle(sessionTimeout))
+                closeSession(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Open a session for a Student, on the Student's current engine
+     * @param className Name of the Student's class, as listed in the root index.txt
+     * @param studentName Name of the Student, as listed in the class index.txt
+     * @return ID of the new session
+     * @throws IllegalArgumentException Thrown if the class or Student is not listed
+     * @throws Exception Thrown if the Student's files are invalid
+     */
+    private String openSession(String className, String studentName) throws Exception {
+        String key = className + "/" + studentName;
+        while (true) {
+            QuizzingEngine qe = getEngine(className, studentName);
+            // The engine may have been evicted since it was looked up, when the Student's last session closed
+            synchronized (sessionLock) {
+                if (qe == getCachedEngine(enginesByStudent.get(key))) {
+                    String id = UUID.randomUUID().toString();
+                    sessions.put(id, new QuizSession(qe));
+                    return id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Close a session, then close and evict its engine if no other session uses it
+     * @param id ID of the session
+     * @param session Session to close; nothing is done if the ID no longer maps to it
+     */
+    private void closeSession(String id, QuizSession session) {
+        if (!sessions.remove(id, session))
+            return;
+        QuizzingEngine qe = session.getEngine();
+        synchronized (sessionLock) {
+            if (isInUse(qe))
+                return;
+            for (Map.Entry<String, FutureTask<QuizzingEngine>> entry : enginesByStudent.entrySet()) {
+                if (getCachedEngine(entry.getValue()) == qe)
+                    enginesByStudent.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        closeEngine(qe);
+    }
+
+    /**
+     * Check whether any open session uses an engine; the caller holds sessionLock
+     * @param qe Engine to look for
+     * @return true if a session uses the engine, false otherwise
+     */
+    private boolean isInUse(QuizzingEngine qe) {
+        for (QuizSession session : sessions.values())
+            if (session.getEngine() == qe)
+                return true;
+        return false;
+    }
+
+    /**
+     * Get the engine a finished creation made
+     * @param creation Creation of an engine, or null
+     * @return Engine created, or null if there is no creation, it has not finished or it failed
+     */
+    private static QuizzingEngine getCachedEngine(FutureTask<QuizzingEngine> creation) {
+        if (creation == null || !creation.isDone())
+            return null;
+        try {
+            return creation.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Close an engine, saving its Student's summaries and waiting a while for its queued reports to be delivered
+     * @param qe Engine to close
+     */
+    private static void closeEngine(QuizzingEngine qe) {
+        synchronized (qe.getStudent()) {
+            qe.close();
+        }
+    }
+
+    /**
+     * Stop accepting requests, then close every Student's engine, waiting a while for queued reports to be delivered
+     * @param delay Seconds to let requests in progress finish
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+        sweeper.shutdown();
+        // Engines evicted from the cache for a changed bank may still have sessions, so close those too
+        HashSet<QuizzingEngine> engines = new HashSet<>();
+        for (FutureTask<QuizzingEngine> creation : enginesByStudent.values()) {
+            QuizzingEngine qe = getCachedEngine(creation);
+            // An engine that was never created has nothing to close
+            if (qe != null)
+                engines.add(qe);
+        }
+        for (QuizSession session : sessions.values())
+            engines.add(session.getEngine());
+        // Every engine shares the root's mail queue, so only the first close waits for much
+        for (QuizzingEngine qe : engines)
+            closeEngine(qe);
+    }
+
+    /**
+     * Get the engine of a Student, creating it the first time any session of the Student needs it. Engines are created
+     * under no shared lock: a request for a Student whose engine is being created waits for that creation, while
+     * requests for other Students go ahead. A failed creation is forgotten so that a later request can try again, and
+     * an engine whose class's QuestionBank has since been reloaded is replaced; it is closed once no session uses it.
+     * @param className Name of the Student's class, as listed in the root index.txt
+     * @param studentName Name of the Student, as listed in the class index.txt
+     * @return Engine of the Student
+     * @throws IllegalArgumentException Thrown if the class or Student is not listed
+     * @throws Exception Thrown if the Student's files are invalid
+     */
+    private QuizzingEngine getEngine(final String className, final String studentName) throws Exception {
+        String[] classes = Utilities.stringSplit(FileUtilities.fromFileCleaned(pathToRoot + "/index.txt"),
+                FileUtilities.EOL);
+        if (!Arrays.asList(classes).contains(className))
+            throw new IllegalArgumentException("Unknown class: " + className);
+        String[] students = Utilities.stringSplit(
+                FileUtilities.fromFileCleaned(pathToRoot + "/" + className + "/index.txt"), FileUtilities.EOL);
+        if (!Arrays.asList(students).contains(studentName))
+            throw new IllegalArgumentException("Unknown student: " + studentName);
+
+        String key = className + "/" + studentName;
+        while (true) {
+            FutureTask<QuizzingEngine> creation = enginesByStudent.get(key);
+            if (creation == null) {
+                FutureTask<QuizzingEngine> newCreation = new FutureTask<>(new Callable<QuizzingEngine>() {
+                    public QuizzingEngine call() throws Exception {
+                        return new QuizzingEngine(pathToRoot, studentName, className);
+                    }
+                });
+                creation = enginesByStudent.putIfAbsent(key, newCreation);
+                if (creation == null) {
+                    creation = newCreation;
+                    creation.run();
+                }
+            }
+            QuizzingEngine qe;
+            try {
+                qe = creation.get();
+            } catch (ExecutionException e) {
+                enginesByStudent.remove(key, creation);
+                if (e.getCause() instanceof Exception)
+                    throw (Exception) e.getCause();
+                throw e;
+            }
+            if (QuestionBank.getInstance(pathToRoot + "/" + className) == qe.getQuestionBank())
+                return qe;
+            // The class's questions changed, so evict the engine and create another with the new bank
+            boolean inUse;
+            synchronized (sessionLock) {
+                enginesByStudent.remove(key, creation);
+                inUse = isInUse(qe);
+            }
+            if (!inUse)
+                closeEngine(qe);
+        }
+    }
+
+    /**
+     * Handle one request
+     * @param exchange Request and its response
+     */
+    public void handle(HttpExchange exchange) {
+        try {
+            HashMap<String, ArrayList<String>> params = parseParameters(exchange);
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/session")) {
+                respond(exchange, 200, openSession(getParameter(params, "class"), getParameter(params, "student")));
+                return;
+            }
+
+            String id = getParameter(params, "session");
+            QuizSession session = sessions.get(id);
+            // A session may go idle between sweeps, so check it here too
+            if (session != null && session.isIdle(sessionTimeout)) {
+                closeSession(id, session);
+                session = null;
+            }
+            if (session != null)
+                session.touch();
+            if (session == null) {
+                respond(exchange, 404, "Unknown session");
+            } else if (path.equals("/tags")) {
+                respond(exchange, 200, joinLines(session.getEngine().getAllTags()));
+            } else if (path.equals("/quiz")) {
+                ArrayList<String> tags = params.get("tag");
+                String[] tagsArray = tags == null ? new String[0] : tags.toArray(new String[tags.size()]);
+                int count = getCount(params);
+                ArrayList<String> order = params.get("order");
+                if (order != null && order.get(0).equals("due"))
+                    respond(exchange, 200, "" + session.startScheduledQuiz(count, tagsArray));
+                else
+                    respond(exchange, 200, "" + session.startQuiz(count, tagsArray));
+            } else if (path.equals("/question")) {
+                String question = session.nextQuestion();
+                if (question == null)
+                    respond(exchange, 409, "No more questions");
+                else
+                    respond(exchange, 200, question);
+            } else if (path.equals("/answer")) {
+                String answer = getParameter(params, "answer");
+                String reply;
+                // Hold the session so that no other request answers between the check and the answer
+                synchronized (session) {
+                    if (!session.isWaitingForAnswer())
+                        reply = null;
+                    else if (session.answer(answer))
+                        reply = "correct";
+                    else
+                        reply = "incorrect" + FileUtilities.EOL + joinLines(session.getLastCorrect());
+                }
+                if (reply == null)
+                    respond(exchange, 400, "No question is waiting for an answer");
+                else
+                    respond(exchange, 200, reply);
+            } else if (path.equals("/progress")) {
+                respond(exchange, 200, UserInterfaceUtilities.makeTable(session.getProgressTable()));
+            } else if (path.equals("/close")) {
+                closeSession(id, session);
+                respond(exchange, 200, "closed");
+            } else
+                respond(exchange, 404, "Unknown request");
+        } catch (IllegalArgumentException e) {
+            // Only a bad request is reported to the client; anything else, such as a history file that can no longer
+            // be read, is logged below
+            respond(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Request " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath()
+                    + " failed", e);
+            respond(exchange, 500, "ERROR: Sorry, but something went wrong and your answer may not have been saved.");
+        }
+    }
+
+    /**
+     * Collect the parameters of a request from its query string and, for a form, its body
+     * @param exchange Request whose parameters to collect
+     * @return Values of each parameter, in the order given
+     * @throws Exception Thrown if the body cannot be read
+     */
+    private static HashMap<String, ArrayList<String>> parseParameters(HttpExchange exchange) throws Exception {
+        HashMap<String, ArrayList<String>> params = new HashMap<>();
+        addParameters(exchange.getRequestURI().getRawQuery(), params);
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            body.write(buffer, 0, read);
+        in.close();
+        addParameters(new String(body.toByteArray(), FileUtilities.CHARSET), params);
+        return params;
+    }
+
+    /**
+     * Add the parameters in URL-encoded text to a map
+     * @param encoded Parameters in the form name=value&amp;name=value, or null
+     * @param params Map to add the parameters to
+     * @throws Exception Thrown if the text is not properly encoded
+     */
+    private static void addParameters(String encoded, HashMap<String, ArrayList<String>> params) throws Exception {
+        if (encoded == null)
+            return;
+        for (String pair : Utilities.stringSplit(encoded, '&')) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            ArrayList<String> values = params.get(name);
+            if (values == null) {
+                values = new ArrayList<>();
+                params.put(name, values);
+            }
+            values.add(value);
+        }
+    }
+
+    /**
+     * Get the first value of a required parameter
+     * @param params Parameters of the request
+     * @param name Name of the parameter
+     * @return First value of the parameter
+     * @throws IllegalArgumentException Thrown if the parameter is missing
+     */
+    private static String getParameter(HashMap<String, ArrayList<String>> params, String name) {
+        ArrayList<String> values = params.get(name);
+        if (values == null)
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        return values.get(0);
+    }
+
+    /**
+     * Get the number of questions requested for a quiz
+     * @param params Parameters of the request
+     * @return Value of the count parameter
+     * @throws IllegalArgumentException Thrown if the count is missing, not an integer or negative
+     */
+    private static int getCount(HashMap<String, ArrayList<String>> params) {
+        String text = getParameter(params, "count");
+        int count;
+        try {
+            count = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("count must be a whole number: " + text);
+        }
+        if (count < 0)
+            throw new IllegalArgumentException("count must not be negative: " + text);
+        return count;
+    }
+
+    /**
+     * Join Strings into lines
+     * @param lines Strings to join
+     * @return Each String followed by an EOL
+     */
+    private static String joinLines(String[] lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines)
+            text.append(line).append(FileUtilities.EOL);
+        return text.toString();
+    }
+
+    /**
+     * Send a plain-text reply and finish the exchange
+     * @param exchange Exchange to reply to
+     * @param status HTTP status code
+     * @param text Body of the reply
+     */
+    private static void respond(HttpExchange exchange, int status, String text) {
+        try {
+            byte[] body = text.getBytes(FileUtilities.CHARSET);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } catch (Exception e) {
+            // The client has gone away; there is no one left to tell
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Validate a directory tree and serve quizzes from it until the process is stopped
+     * @param args Path to the root of the directory tree, followed by the port to listen on and optionally the seconds
+     *             a session may go unused before it is closed
+     * @throws Exception Thrown if the server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Usage: QuizServer <path to root> <port> [<session timeout in seconds>]");
+            System.exit(1);
+        }
+        ArrayList<String> problems = new RootValidator(args[0]).validate();
+        if (!problems.isEmpty()) {
+            System.out.println("Sorry, but the specified root does not contain a valid directory tree:");
+            for (String problem : problems)
+                System.out.println("    " + problem);
+            System.exit(1);
+        }
+
+        int sessionTimeout = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_SESSION_TIMEOUT;
+        final QuizServer quizServer = new QuizServer(args[0], Integer.parseInt(args[1]), sessionTimeout);
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                quizServer.stop(5);
+            }
+        }));
+        quizServer.start();
+        System.out.println("Serving quizzes from " + args[0] + " on port " + args[1]);
+    }
+}
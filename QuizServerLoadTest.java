@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Puts a QuizServer under load from many concurrent sessions and checks that every answer it accepted was saved. The
+ * Students' history files are written to, so run it on a copy of a directory tree.
+ */
+public class QuizServerLoadTest {
+    private String baseUrl;
+
+    /**
+     * Constructor that sets the server to send requests to
+     * @param port Port the server listens on, on this machine
+     */
+    public QuizServerLoadTest(int port) {
+        baseUrl = "http://localhost:" + port;
+    }
+
+    /**
+     * Run one session: open it, take a whole quiz answering every question, and close it
+     * @param className Name of the Student's class
+     * @param studentName Name of the Student
+     * @param numQuestions Number of questions to ask for
+     * @param latencies List to add the time each request took to, in nanoseconds
+     * @return Number of answers the server accepted
+     * @throws Exception Thrown if any request fails
+     */
+    public int runSession(String className, String studentName, int numQuestions, ArrayList<Long> latencies)
+            throws Exception {
+        long start = System.nanoTime();
+        String session = call("POST", "/session", "class=" + encode(className) + "&student=" + encode(studentName));
+        latencies.add(System.nanoTime() - start);
+        String sessionParameter = "session=" + encode(session);
+
+        start = System.nanoTime();
+        call("POST", "/quiz", sessionParameter + "&count=" + numQuestions);
+        latencies.add(System.nanoTime() - start);
+
+        int answered = 0;
+        while (true) {
+            start = System.nanoTime();
+            String question = call("GET", "/question?" + sessionParameter, null);
+            latencies.add(System.nanoTime() - start);
+            if (question == null)
+                break;
+            // A wrong answer is recorded like any other, and its reply also exercises the correct answer lookup
+            start = System.nanoTime();
+            String reply = call("POST", "/answer", sessionParameter + "&answer=" + encode("wrong " + answered));
+            latencies.add(System.nanoTime() - start);
+            answered ++;
+            if (!reply.startsWith("incorrect"))
+                throw new Exception("Unexpected reply to a wrong answer: " + reply);
+        }
+
+        start = System.nanoTime();
+        call("POST", "/close", sessionParameter);
+        latencies.add(System.nanoTime() - start);
+        return answered;
+    }
+
+    /**
+     * Send a request and read its reply
+     * @param method HTTP method
+     * @param path Path of the request, with any query string
+     * @param form URL-encoded form to send as the body, or null for none
+     * @return Body of the reply, or null if the server answered 409 (no more questions)
+     * @throws Exception Thrown if the server answers with any other error
+     */
+    private String call(String method, String path, String form) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            OutputStream out = connection.getOutputStream();
+            out.write(form.getBytes(FileUtilities.CHARSET));
+            out.close();
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                body.write(buffer, 0, read);
+            in.close();
+        }
+        String text = new String(body.toByteArray(), FileUtilities.CHARSET);
+        if (status == 409)
+            return null;
+        if (status != 200)
+            throw new Exception(method + " " + path + " failed with " + status + ": " + text);
+        return text;
+    }
+
+    /**
+     * URL-encode a parameter value
+     * @param value Value to encode
+     * @return Encoded value
+     * @throws Exception Thrown if UTF-8 is not supported
+     */
+    private static String encode(String value) throws Exception {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    /**
+     * Count the answers saved for every Student of a class, reading their files without changing them
+     * @param pathToClass Path to the class directory
+     * @param students Names of the Students to count
+     * @return Total number of answers in the Students' QuestionHistories
+     * @throws Exception Thrown if a Student's files are invalid
+     */
+    private static long countResponses(String pathToClass, String[] students) throws Exception {
+        QuestionIndex questionIndex = QuestionBank.getInstance(pathToClass).getQuestionIndex();
+        long count = 0;
+        for (String name : students) {
+            Student student = new Student(pathToClass + "/" + name, questionIndex, true);
+            for (QuestionHistory qh : student.getQuestionHistories())
+                count += ((StaticQuestionHistory) qh).getResponseCount();
+        }
+        return count;
+    }
+
+    /**
+     * Start a QuizServer on a directory tree, run many sessions against it at once, and report the request latencies
+     * and whether any answers were lost
+     * @param args Path to the root of the directory tree, port, class, number of concurrent sessions and questions
+     *             per session
+     * @throws Exception Thrown if the server cannot start or a request fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 5) {
+            System.out.println("Usage: QuizServerLoadTest <path to root> <port> <class> <sessions> <questions>");
+            System.exit(1);
+        }
+        final String className = args[2];
+        int port = Integer.parseInt(args[1]);
+        int numSessions = Integer.parseInt(args[3]);
+        final int numQuestions = Integer.parseInt(args[4]);
+        String pathToClass = args[0] + "/" + className;
+        final String[] students = Utilities.stringSplit(FileUtilities.fromFileCleaned(pathToClass + "/index.txt"),
+                FileUtilities.EOL);
+
+        QuizServer server = new QuizServer(args[0], port);
+        server.start();
+        final QuizServerLoadTest test = new QuizServerLoadTest(port);
+        // Open every Student's engine once first, so that the counts below include any blank files it creates
+        for (String student : students)
+            test.call("POST", "/session", "class=" + encode(className) + "&student=" + encode(student));
+        long before = countResponses(pathToClass, students);
+
+        ExecutorService clients = Executors.newFixedThreadPool(numSessions);
+        ArrayList<Future<Integer>> futures = new ArrayList<>(numSessions);
+        final ArrayList<ArrayList<Long>> latencyLists = new ArrayList<>(numSessions);
+        long begin = System.nanoTime();
+        for (int i = 0; i < numSessions; i ++) {
+            final String student = students[i % students.length];
+            final ArrayList<Long> latencies = new ArrayList<>();
+            latencyLists.add(latencies);
+            futures.add(clients.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return test.runSession(className, student, numQuestions, latencies);
+                }
+            }));
+        }
+        int answered = 0;
+        try {
+            for (Future<Integer> future : futures)
+                answered += future.get();
+        } finally {
+            clients.shutdown();
+        }
+        long elapsed = System.nanoTime() - begin;
+        server.stop(0);
+
+        ArrayList<Long> latencies = new ArrayList<>();
+        for (ArrayList<Long> list : latencyLists)
+            latencies.addAll(list);
+        Collections.sort(latencies);
+        long after = countResponses(pathToClass, students);
+        System.out.println(numSessions + " sessions made " + latencies.size() + " requests in " + elapsed / 1000000
+                + " ms (" + Math.round(latencies.size() / (elapsed / 1e9)) + " requests per second)");
+        System.out.println("Latency: median " + latencies.get(latencies.size() / 2) / 1000 + " us, 99th percentile "
+                + latencies.get(latencies.size() * 99 / 100) / 1000 + " us, max "
+                + latencies.get(latencies.size() - 1) / 1000 + " us");
+        System.out.println("Answers accepted: " + answered + ", saved: " + (after - before));
+        if (after - before != answered) {
+            System.out.println("Some answers were lost");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+/**
+ * One Student's connection to a QuizServer: the quiz they are taking and where they are in it. A Student may have
+ * several sessions at once; they share the Student's QuizzingEngine, and answers are recorded one at a time per
+ * Student so their history files are never written concurrently.
+ */
+public class QuizSession {
+    private QuizzingEngine engine;
+    private StaticQuestionQuiz quiz;
+    private int numAsked;
+    private int numAnswered;
+    private volatile long lastUsed;
+
+    /**
+     * Constructor that creates a session with no quiz in progress
+     * @param inEngine Engine of the Student using the session
+     */
+    public QuizSession(QuizzingEngine inEngine) {
+        engine = inEngine;
+        quiz = null;
+        numAsked = 0;
+        numAnswered = 0;
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Note that the session has just been used, so that it is not closed for being idle
+     */
+    public void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Check whether the session has gone unused for too long
+     * @param timeout Milliseconds the session may go unused
+     * @return true if the session was last used more than timeout milliseconds ago, false otherwise
+     */
+    public boolean isIdle(long timeout) {
+        return System.currentTimeMillis() - lastUsed > timeout;
+    }
+
+    /**
+     * Get the engine of the Student using the session
+     * @return Engine of the Student
+     */
+    public QuizzingEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Start a new quiz, abandoning any quiz in progress
+     * @param numToAsk Number of questions to request
+     * @param tags Tags, all of which must be satisfied for a question to be included
+     * @return Number of questions in the quiz, which may be fewer than requested
+     */
+    public synchronized int startQuiz(int numToAsk, String[] tags) {
+        synchronized (engine.getStudent()) {
+            quiz = engine.getAutoStaticQuiz(numToAsk, tags);
+        }
+        numAsked = 0;
+        numAnswered = 0;
+        return quiz.getQuiz().size();
+    }
+
+    /**
+     * Start a new quiz of the questions due soonest for review, abandoning any quiz in progress
+     * @param numToAsk Number of questions to request
+     * @param tags Tags, all of which must be satisfied for a question to be included
+     * @return Number of questions in the quiz, which may be fewer than requested
+     */
+    public synchronized int startScheduledQuiz(int numToAsk, String[] tags) {
+        synchronized (engine.getStudent()) {
+            quiz = engine.getScheduledStaticQuiz(numToAsk, tags);
+        }
+        numAsked = 0;
+        numAnswered = 0;
+        return quiz.getQuiz().size();
+    }
+
+    /**
+     * Get the text of the question to answer next, starting its timer
+     * @return Text of the next question, or null if there is no quiz in progress or it is finished
+     */
+    public synchronized String nextQuestion() {
+        if (quiz == null || numAnswered >= quiz.getQuiz().size())
+            return null;
+        numAsked = numAnswered + 1;
+        return quiz.getNextQuestionText();
+    }
+
+    /**
+     * Check whether a question has been asked and not yet answered
+     * @return true if answer may be called, false otherwise
+     */
+    public synchronized boolean isWaitingForAnswer() {
+        return quiz != null && numAsked != numAnswered;
+    }
+
+    /**
+     * Check and record the answer to the question last asked
+     * @param answer Student's answer
+     * @return true if the answer was right, false otherwise
+     * @throws IllegalStateException Thrown if no question is waiting for an answer
+     * @throws Exception Thrown if the answer could not be saved
+     */
+    public synchronized boolean answer(String answer) throws Exception {
+        if (!isWaitingForAnswer())
+            throw new IllegalStateException("No question is waiting for an answer");
+        boolean correct;
+        // Serialize writes to the Student's history files across all of their sessions
+        synchronized (engine.getStudent()) {
+            correct = quiz.recordAnswer(answer);
+        }
+        numAnswered ++;
+        return correct;
+    }
+
+    /**
+     * Get the correct answers to the question last answered
+     * @return Correct answers, or an empty array if no question has been answered
+     */
+    public synchronized String[] getLastCorrect() {
+        if (quiz == null || numAnswered == 0)
+            return new String[0];
+        return quiz.getLastCorrect();
+    }
+
+    /**
+     * Get the Student's progress on every tag
+     * @return Table of the Student's progress, ready for UserInterfaceUtilities.makeTable
+     */
+    public String[][] getProgressTable() {
+        synchronized (engine.getStudent()) {
+            return engine.getProgress().makeTable();
+        }
+    }
+}
@@ -27,7 +27,9 @@ public class QuizzingEngine {
     private String pathToRoot;
     private String pathToClass;
     private Student student;
+    private QuestionBank bank;
     private Question[] questions;
+    private QuestionIndex questionIndex;
     private Mailer mailer;
 
     /**
@@ -41,32 +43,84 @@ public class QuizzingEngine {
         pathToRoot = inPathToRoot;
         pathToClass = pathToRoot + "/" + className;
 
-        // Create questions
+        String rootConfigText = FileUtilities.fromFileCleaned(pathToRoot + "/" + "config.txt");
+
+        // Get the class's questions, shared with any other students of the class in this process
+        bank = QuestionBank.getInstance(pathToClass);
+        questions = bank.getQuestions();
+        questionIndex = bank.getQuestionIndex();
+        student = new Student(pathToClass + "/" + inStudentName, questionIndex, false, getSyncInterval(rootConfigText));
+
+        // Initialize Mailing System
+        String classConfigText = FileUtilities.fromFileCleaned(pathToClass + "/" + "config.txt");
+        String destination = FileUtilities.findDataFromLabel(classConfigText, "EmailReportDestination");
+        mailer = new Mailer(destination, getMailQueue(pathToRoot, rootConfigText));
+    }
+
+    /**
+     * Get how often a directory tree's history files are forced to disk, from the root config.txt
+     * @param rootConfigText Cleaned text of the root config.txt
+     * @return Number of answers to append to a history file between forcing it to disk, or ResponseJournal.SYNC_NEVER
+     *         if the root does not say
+     */
+    public static int getSyncInterval(String rootConfigText) {
+        String syncInterval = FileUtilities.findDataFromLabel(rootConfigText, "HistorySyncInterval");
+        if (syncInterval == null)
+            return ResponseJournal.SYNC_NEVER;
+        else
+            return Integer.parseInt(syncInterval);
+    }
+
+    /**
+     * Get the queue that delivers email for a directory tree, configured from the root config.txt
+     * @param pathToRoot Path to the root of the directory tree
+     * @param rootConfigText Cleaned text of the root config.txt
+     * @return Queue that spools email in the root's Spool directory
+     */
+    public static MailQueue getMailQueue(String pathToRoot, String rootConfigText) {
+        String username = FileUtilities.findDataFromLabel(rootConfigText, "EmailUsername");
+        String password = FileUtilities.findDataFromLabel(rootConfigText, "EmailPassword");
+        // An SMTP server other than GMail may be configured, e.g. a local one for testing
+        String host = FileUtilities.findDataFromLabel(rootConfigText, "EmailHost");
+        String port = FileUtilities.findDataFromLabel(rootConfigText, "EmailPort");
+        // Such a server is reached in plain text, and is logged in to unless EmailAuth is n
+        String auth = FileUtilities.findDataFromLabel(rootConfigText, "EmailAuth");
+        MailTransport transport;
+        if (host != null && port != null)
+            transport = new SmtpMailTransport(username, password, host, Integer.parseInt(port), false,
+                    !"n".equals(auth));
+        else
+            transport = new SmtpMailTransport(username, password);
+        return MailQueue.getInstance(pathToRoot + "/Spool", transport);
+    }
+
+    /**
+     * Load all the Questions of a class, reading each category file one line at a time
+     * @param pathToClass Path to the class directory
+     * @return Array of all the Questions in the class's categories
+     * @throws Exception Thrown if a category file is missing or describes an unknown type of Question
+     */
+    public static Question[] loadQuestions(String pathToClass) throws Exception {
         ArrayList<Question> questionsList = new ArrayList<>();
         String questionsIndex = FileUtilities.fromFileCleaned(pathToClass + "/Questions/index.txt");
         String[] categories = Utilities.stringSplit(questionsIndex, FileUtilities.EOL);
         for (String category : categories) {
-            String categoryText = FileUtilities.fromFileCleaned(pathToClass + "/Questions/" + category);
-            String [] categoryLines = Utilities.stringSplit(categoryText, FileUtilities.EOL);
-            for (int i = 1; i < categoryLines.length; i ++) {
-                if (Question.isStatic(categoryLines[i]))
-                    questionsList.add(new StaticQuestion(categoryLines[i]));
-                else
-                    throw new Exception("File line describing a Question does not match any type of Question");
+            CleanedLineReader reader = new CleanedLineReader(pathToClass + "/Questions/" + category);
+            try {
+                // First line holds the column headings
+                String line = reader.readLine();
+                while ((line = reader.readLine()) != null) {
+                    if (Question.isStatic(line))
+                        questionsList.add(new StaticQuestion(line));
+                    else
+                        throw new Exception("File line describing a Question does not match any type of Question");
+                }
+            } finally {
+                reader.close();
             }
         }
-        questions = new Question[questionsList.size()];
-        questionsList.toArray(questions);
-        student = new Student(pathToClass + "/" + inStudentName, questions);
-
-        // Initialize Mailing System
-        String rootConfigText = FileUtilities.fromFileCleaned(pathToRoot + "/" + "config.txt");
-        String username = FileUtilities.findDataFromLabel(rootConfigText, "EmailUsername");
-        String password = FileUtilities.findDataFromLabel(rootConfigText, "EmailPassword");
-        String classConfigText = FileUtilities.fromFileCleaned(pathToClass + "/" + "config.txt");
-        String destination = FileUtilities.findDataFromLabel(classConfigText, "EmailReportDestination");
-
-        mailer = new Mailer(username, password, destination);
+        Question[] questionsArray = new Question[questionsList.size()];
+        return questionsList.toArray(questionsArray);
     }
 
     /**
@@ -77,6 +131,14 @@ public class QuizzingEngine {
         return (int) Math.round(student.getPercentMastered()*100);
     }
 
+    /**
+     * Get the student's progress on every tag
+     * @return Snapshot of the student's progress, computed in one pass over their histories
+     */
+    public ProgressSnapshot getProgress() {
+        return new ProgressSnapshot(student);
+    }
+
     /**
      * Get an automatically generated quiz for the student based on one set of required tags
      * @param numToAsk Number of questions to request
@@ -95,11 +157,22 @@ public class QuizzingEngine {
      * @return StaticQuestionQuiz for the Student to take
      */
     public StaticQuestionQuiz getAutoStaticQuiz(int numToAsk, String[][] tagLists) {
-        StaticQuestionQuiz sqq = new StaticQuestionQuiz(numToAsk, student, tagLists[0]);
-        for (int i = 1; i < tagLists.length; i ++) {
-            sqq.moreTags(tagLists[i]);
-        }
-        return sqq;
+        // The union of the tag lists is built first, so the questions are ranked only once
+        return new StaticQuestionQuiz(numToAsk, student, tagLists);
+    }
+
+    /**
+     * Get a StaticQuestionQuiz of the questions that are due soonest for review, the most overdue first
+     * @param numToAsk Number of questions to ask
+     * @param tags Array of tags, each of which will be present in each Question asked of the Student
+     *             An empty Array signals no restriction by tag
+     * @return StaticQuestionQuiz for the Student to take
+     */
+    public StaticQuestionQuiz getScheduledStaticQuiz(int numToAsk, String[] tags) {
+        ArrayList<StaticQuestion> due = new ArrayList<>();
+        for (StaticQuestionHistory sqh : student.getReviewScheduler().getNextDue(numToAsk, tags))
+            due.add((StaticQuestion) sqh.getQuestion());
+        return new StaticQuestionQuiz(student, due);
     }
 
     /**
@@ -132,6 +205,14 @@ public class QuizzingEngine {
         return student;
     }
 
+    /**
+     * Get the QuestionBank the engine's Questions come from
+     * @return Bank of the Student's class as it was when the engine was created
+     */
+    public QuestionBank getQuestionBank() {
+        return bank;
+    }
+
     /**
      * Get the list of Questions in the system
      * @return Array of all Questions in the system
@@ -140,21 +221,20 @@ public class QuizzingEngine {
         return questions;
     }
 
+    /**
+     * Get the index used to look up Questions by their text
+     * @return Index of all Questions in the system
+     */
+    public QuestionIndex getQuestionIndex() {
+        return questionIndex;
+    }
+
     /**
      * Get all the tags used in the system
      * @return Array of all tags used in the system
      */
     public String[] getAllTags() {
-        ArrayList<String> tags = new ArrayList<>();
-        for (Question q : questions) {
-            for (String tag : q.getTags()) {
-                if (!Utilities.isPresent(tags, tag))
-                    tags.add(tag);
-            }
-        }
-        String[] tagsArray = new String[tags.size()];
-        tags.toArray(tagsArray);
-        return tagsArray;
+        return questionIndex.getTagIndex().getTags();
     }
 
     /**
@@ -163,11 +243,7 @@ public class QuizzingEngine {
      * @return String showing the Student's response history
      */
     public String getHistory(String[] tags) {
-        ArrayList<QuestionHistory> historiesToShow = new ArrayList<>();
-        for (QuestionHistory qh : student.getQuestionHistories()) {
-            if (qh.getQuestion().hasTags(tags))
-                historiesToShow.add(qh);
-        }
+        ArrayList<QuestionHistory> historiesToShow = student.getQuestionHistories(tags);
         String toReturn = "History of Responses: " + FileUtilities.EOL;
         for (QuestionHistory qh : historiesToShow) {
             toReturn += qh.toString() + FileUtilities.EOL;
@@ -177,7 +253,7 @@ public class QuizzingEngine {
 
     /**
      * Send a report containing the student's full response history to a given question
-     * @return true if email sent successfully, false otherwise
+     * @return true if the email was queued for sending, false otherwise
      */
     public boolean sendFullHistoryReport(String[] tags) {
         return mailer.sendReport(getHistory(tags), student);
@@ -185,47 +261,35 @@ public class QuizzingEngine {
 
     /**
      * Send a report containing a table of the student's progress on all tags
-     * @return true if email sent successfully, false otherwise
+     * @return true if the email was queued for sending, false otherwise
      */
     public boolean sendProgressReport() {
-        String[] tags = getAllTags();
-        // Table Headings: Tag, Percent Mastery
-        String[][] table = new String[tags.length + 1][3];
-        table[0][0] = "Tag";
-        table[0][1] = "Percent Mastery";
-        table[0][2] = "Progress Bar";
+        String[][] table = getProgress().makeTable();
+        return mailer.sendReport(UserInterfaceUtilities.makeTable(table), student);
+    }
 
-        for (int i = 0; i < tags.length; i ++) {
-            int r = i + 1;
-            int percentMastery = (int) (student.getPercentMastered(tags[i]) * 100);
-            table[r][0] = tags[i];
-            table[r][1] = "" + percentMastery + "%";
-            table[r][2] = UserInterfaceUtilities.makeProgressBar(10, percentMastery / 100.0);
+    /**
+     * Save a summary of the Student's records so the next login is quick, then wait a while for queued reports to be
+     * delivered before the program exits; any that are not delivered by then stay spooled and are sent the next time
+     * the program starts
+     * @return true if every queued report was dealt with, false otherwise
+     */
+    public boolean close() {
+        try {
+            student.saveSummaries();
+        } catch (Exception e) {
+            // The summaries are only a cache; without them the next login reads every file
         }
-        return mailer.sendReport(UserInterfaceUtilities.makeTable(table), student);
+        return mailer.flush(10 * 1000);
     }
 
     /**
-     * Check whether a directory structure and its files are valid
+     * Check whether a directory structure and its files are valid; use RootValidator to find out what is wrong
      * @param pathToRoot Path to the root of the directory tree
      * @return true if it is valid, false if it is not
      */
     public static boolean isValid(String pathToRoot) {
-        try {
-            String classIndexText = FileUtilities.fromFileCleaned(pathToRoot + "/index.txt");
-            String[] classes = Utilities.stringSplit(classIndexText, FileUtilities.EOL);
-            for (String className : classes) {
-                String pathToClassRoot = pathToRoot + "/" + className;
-                String studentIndexText = FileUtilities.fromFileCleaned(pathToClassRoot + "/index.txt");
-                String[] students = Utilities.stringSplit(studentIndexText, FileUtilities.EOL);
-                for (String s : students) {
-                    new QuizzingEngine(pathToRoot, s, className);
-                }
-            }
-        } catch (Exception e) {
-            return false;
-        }
-        return true;
+        return new RootValidator(pathToRoot).validate().isEmpty();
     }
 
     /**
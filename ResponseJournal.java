@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only journal of the lines in a QuestionHistory file, so recording an answer costs the same no matter how long
+ * the history already is. Appends to a file are serialized within the process by a lock stripe chosen by the file's
+ * path, and between processes by an exclusive lock on the file, so concurrent sessions never interleave lines.
+ */
+public class ResponseJournal {
+    public static final int SYNC_NEVER = 0;
+    public static final int SYNC_EVERY_RECORD = 1;
+
+    private static final int LOCK_STRIPES = 64;
+    private static final Object[] stripes = new Object[LOCK_STRIPES];
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i ++)
+            stripes[i] = new Object();
+    }
+
+    private String path;
+    private Object stripe;
+    private int syncInterval;
+    private int unsynced;
+
+    /**
+     * Constructor that creates a journal for a file that leaves flushing to the operating system
+     * @param inPath Path to the file to append to
+     */
+    public ResponseJournal(String inPath) {
+        this(inPath, SYNC_NEVER);
+    }
+
+    /**
+     * Constructor that creates a journal for a file
+     * @param inPath Path to the file to append to
+     * @param inSyncInterval Number of records to append between forcing the file to disk; SYNC_NEVER leaves flushing
+     *                       to the operating system
+     */
+    public ResponseJournal(String inPath, int inSyncInterval) {
+        path = inPath;
+        // Journals for the same file share a stripe however the path was written
+        stripe = getStripe(path);
+        syncInterval = inSyncInterval;
+        unsynced = 0;
+    }
+
+    /**
+     * Append a single line to the end of the file, first cutting off any line left incomplete by an earlier crash
+     * @param line Line to append, without the EOL
+     * @return Position in the file at which the line was written
+     * @throws Exception Thrown if the file does not exist or cannot be written to
+     */
+    public long append(String line) throws Exception {
+        return append(new String[] {line});
+    }
+
+    /**
+     * Append lines to the end of the file in a single write, first cutting off any line left incomplete by an earlier
+     * crash; the lines count as one record for the sync policy, so the file is forced at most once
+     * @param lines Lines to append, without EOLs
+     * @return Position in the file at which the first line was written
+     * @throws Exception Thrown if the file does not exist or cannot be written to
+     */
+    public long append(String[] lines) throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines)
+            text.append(line).append(FileUtilities.EOL);
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(FileUtilities.CHARSET));
+        synchronized (stripe) {
+            FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                FileLock lock = channel.lock();
+                try {
+                    removePartialLine(channel);
+                    long start = channel.size();
+                    channel.position(start);
+                    while (buffer.hasRemaining())
+                        channel.write(buffer);
+                    unsynced ++;
+                    if (syncInterval != SYNC_NEVER && unsynced >= syncInterval) {
+                        channel.force(false);
+                        unsynced = 0;
+                    }
+                    return start;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Get the object that serializes access to a journal file within the process; anything that rewrites a journal
+     * file must hold it, as well as the file's lock, so that it does not race with appends
+     * @param path Path to the journal file
+     * @return Lock stripe of the file
+     */
+    public static Object getStripe(String path) {
+        int hash = Paths.get(path).toAbsolutePath().normalize().hashCode();
+        return stripes[(hash & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * Get the path to the file the journal appends to
+     * @return Path to the journal's file
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Read the complete lines of a journal file, cleaned of annotations. A last line without an EOL was cut off while
+     * being written and is left out.
+     * @param path Path to the journal file
+     * @return Complete, non-blank lines of the file
+     * @throws Exception Thrown if the file does not exist or cannot be read
+     */
+    public static String[] readLines(String path) throws Exception {
+        return splitLines(FileUtilities.fromFile(path));
+    }
+
+    /**
+     * Split text read from a journal file into its complete lines, cleaned of annotations
+     * @param text Text of the journal file, or of its end
+     * @return Complete, non-blank lines of the text
+     */
+    public static String[] splitLines(String text) {
+        if (!text.endsWith(FileUtilities.EOL))
+            text = text.substring(0, text.lastIndexOf(FileUtilities.EOL) + 1);
+        return Utilities.stringSplit(FileUtilities.removeAnnotations(text), FileUtilities.EOL);
+    }
+
+    /**
+     * Cut off a partially written last line so that the next append starts on a line of its own. If the file has no
+     * complete line at all, the partial line is completed instead so that it is not lost.
+     * @param channel Channel open for reading and writing, on which the caller holds the file lock
+     * @throws Exception Thrown if the file cannot be written to
+     */
+    private static void removePartialLine(FileChannel channel) throws Exception {
+        long size = channel.size();
+        if (size == 0 || lastByte(channel, size) == '\n')
+            return;
+        long end = size - 1;
+        while (end > 0 && lastByte(channel, end) != '\n')
+            end --;
+        if (end > 0) {
+            channel.truncate(end);
+        } else {
+            channel.position(size);
+            channel.write(ByteBuffer.wrap(FileUtilities.EOL.getBytes(FileUtilities.CHARSET)));
+        }
+    }
+
+    /**
+     * Read the byte just before a position in a file
+     * @param channel Channel open for reading
+     * @param end Position just after the byte to read
+     * @return Byte found in the file
+     * @throws Exception Thrown if the file cannot be read
+     */
+    private static byte lastByte(FileChannel channel, long end) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, end - 1);
+        return buffer.get(0);
+    }
+}
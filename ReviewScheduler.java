@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Spaced-repetition schedule of a Student's StaticQuestions, kept as a priority queue ordered by when each question is
+ * next due. Questions never answered correctly are due first, and the rest are due the waiting time after their last
+ * correct response. A question's place in the queue only changes when it is answered, so the queue is updated one
+ * question at a time instead of being rebuilt for every quiz. A request restricted by tags selects from the tagged
+ * questions alone, so it costs time in proportion to how many questions have the tags rather than to the whole queue.
+ */
+public class ReviewScheduler {
+    private final QuestionIndex questionIndex;
+    private final StaticQuestionHistory[] histories;    // By Question ordinal; null if the Student has none
+    private final long[] dueSeconds;                    // Epoch second each question is due, by Question ordinal
+    private final TreeSet<Integer> queue;               // Ordinals in order of due time, then of ordinal
+
+    /**
+     * Constructor that schedules every StaticQuestion a Student has a history for
+     * @param inQuestionIndex Index of the Questions the histories refer to
+     * @param historiesByOrdinal The Student's QuestionHistory for each Question ordinal, or null where there is none
+     */
+    public ReviewScheduler(QuestionIndex inQuestionIndex, QuestionHistory[] historiesByOrdinal) {
+        questionIndex = inQuestionIndex;
+        histories = new StaticQuestionHistory[historiesByOrdinal.length];
+        dueSeconds = new long[historiesByOrdinal.length];
+        queue = new TreeSet<>(new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                int byDue = Long.compare(dueSeconds[a], dueSeconds[b]);
+                return byDue != 0 ? byDue : Integer.compare(a, b);
+            }
+        });
+        for (int i = 0; i < historiesByOrdinal.length; i ++) {
+            if (historiesByOrdinal[i] instanceof StaticQuestionHistory) {
+                histories[i] = (StaticQuestionHistory) historiesByOrdinal[i];
+                dueSeconds[i] = getDueSecond(histories[i]);
+                queue.add(i);
+            }
+        }
+    }
+
+    /**
+     * Move a question to its new place in the queue after it has been answered
+     * @param qh History of the question answered
+     */
+    public synchronized void update(QuestionHistory qh) {
+        int ordinal = questionIndex.getOrdinal(qh.getQuestion().getQuestionText());
+        if (ordinal < 0 || histories[ordinal] == null)
+            return;
+        // The queue is ordered by dueSeconds, so the ordinal must be out of it while its entry changes
+        queue.remove(ordinal);
+        dueSeconds[ordinal] = getDueSecond(histories[ordinal]);
+        queue.add(ordinal);
+    }
+
+    /**
+     * Get the questions that are due soonest
+     * @param numToAsk Number of questions to get
+     * @param tags Array of tags, each of which must be present in each Question
+     *             An empty Array signals no restriction by tag
+     * @return Up to numToAsk histories with the requested tags, the most overdue first
+     */
+    public synchronized ArrayList<StaticQuestionHistory> getNextDue(int numToAsk, String[] tags) {
+        ArrayList<StaticQuestionHistory> due = new ArrayList<>(Math.max(0, Math.min(numToAsk, queue.size())));
+        if (tags.length == 0) {
+            for (int ordinal : queue) {
+                if (due.size() >= numToAsk)
+                    break;
+                due.add(histories[ordinal]);
+            }
+            return due;
+        }
+
+        BitSet tagged = questionIndex.getTagIndex().getQuestionsWithAllTags(tags);
+        int numTagged = tagged.cardinality();
+        // Walking the queue finds numToAsk tagged questions after about numToAsk * queue.size() / numTagged steps, so
+        // it only beats selecting from the tagged questions directly when the tags are common
+        if ((long) numToAsk * queue.size() < (long) numTagged * numTagged) {
+            for (int ordinal : queue) {
+                if (due.size() >= numToAsk)
+                    break;
+                if (tagged.get(ordinal))
+                    due.add(histories[ordinal]);
+            }
+            return due;
+        }
+
+        // Collect the tagged questions in order of ordinal, so that ties in due time are broken as in the queue
+        int[] ordinals = new int[numTagged];
+        double[] keys = new double[numTagged];
+        int numScheduled = 0;
+        for (int i = tagged.nextSetBit(0); i >= 0; i = tagged.nextSetBit(i + 1)) {
+            if (histories[i] != null) {
+                ordinals[numScheduled] = i;
+                // Epoch seconds and Long.MIN_VALUE are exact as doubles, so the order is unchanged
+                keys[numScheduled] = dueSeconds[i];
+                numScheduled ++;
+            }
+        }
+        if (numScheduled < numTagged)
+            keys = Arrays.copyOf(keys, numScheduled);
+        for (int i : Utilities.lowestIndices(keys, numToAsk))
+            due.add(histories[ordinals[i]]);
+        return due;
+    }
+
+    /**
+     * Get when a question is due
+     * @param ordinal Ordinal of the Question
+     * @return Time at which the question is due, LocalDateTime.MIN if it has never been answered correctly, or null
+     * if the Student has no history for it
+     */
+    public synchronized LocalDateTime getDueTime(int ordinal) {
+        if (histories[ordinal] == null)
+            return null;
+        if (dueSeconds[ordinal] == Long.MIN_VALUE)
+            return LocalDateTime.MIN;
+        return LocalDateTime.ofEpochSecond(dueSeconds[ordinal], 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Compute the key a history is queued by
+     * @param sqh History of the question
+     * @return Epoch second the question is due, or Long.MIN_VALUE if it has never been answered correctly
+     */
+    private static long getDueSecond(StaticQuestionHistory sqh) {
+        LocalDateTime due = sqh.getDueTime();
+        if (due == null)
+            return Long.MIN_VALUE;
+        return due.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Checks a whole directory tree without changing it, finding every problem instead of stopping at the first. Each
+ * class's Questions are parsed once and shared by all its Students, and Students are checked concurrently on a
+ * fork-join pool.
+ */
+public class RootValidator {
+    private String pathToRoot;
+
+    /**
+     * Constructor that sets the directory tree to check
+     * @param inPathToRoot Path to the root of the directory tree
+     */
+    public RootValidator(String inPathToRoot) {
+        pathToRoot = inPathToRoot;
+    }
+
+    /**
+     * Check the directory tree
+     * @return Description of each problem found, in the order of the index files; empty if the tree is valid
+     */
+    public ArrayList<String> validate() {
+        final ArrayList<String> problems = new ArrayList<>();
+        String rootConfigText;
+        String[] classes;
+        try {
+            rootConfigText = FileUtilities.fromFileCleaned(pathToRoot + "/config.txt");
+            classes = Utilities.stringSplit(FileUtilities.fromFileCleaned(pathToRoot + "/index.txt"), FileUtilities.EOL);
+        } catch (Exception e) {
+            problems.add(describe(pathToRoot, e));
+            return problems;
+        }
+        checkInteger(rootConfigText, "HistorySyncInterval", pathToRoot + "/config.txt", problems);
+        checkInteger(rootConfigText, "EmailPort", pathToRoot + "/config.txt", problems);
+
+        final ArrayList<ForkJoinTask<ArrayList<String>>> classTasks = new ArrayList<>(classes.length);
+        for (final String className : classes) {
+            classTasks.add(ForkJoinTask.adapt(new Callable<ArrayList<String>>() {
+                public ArrayList<String> call() {
+                    return validateClass(pathToRoot + "/" + className);
+                }
+            }));
+        }
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(ForkJoinTask.adapt(new Runnable() {
+                public void run() {
+                    ForkJoinTask.invokeAll(classTasks);
+                }
+            }));
+        } finally {
+            pool.shutdown();
+        }
+        for (ForkJoinTask<ArrayList<String>> task : classTasks)
+            problems.addAll(task.join());
+        return problems;
+    }
+
+    /**
+     * Check a class directory and every Student in it, forking a task for each Student
+     * @param pathToClass Path to the class directory
+     * @return Description of each problem found in the class
+     */
+    private ArrayList<String> validateClass(final String pathToClass) {
+        ArrayList<String> problems = new ArrayList<>();
+        String[] students;
+        final QuestionIndex questionIndex;
+        try {
+            FileUtilities.fromFileCleaned(pathToClass + "/config.txt");
+            students = Utilities.stringSplit(FileUtilities.fromFileCleaned(pathToClass + "/index.txt"), FileUtilities.EOL);
+            questionIndex = QuestionBank.getInstance(pathToClass).getQuestionIndex();
+        } catch (Exception e) {
+            problems.add(describe(pathToClass, e));
+            return problems;
+        }
+
+        ArrayList<ForkJoinTask<ArrayList<String>>> studentTasks = new ArrayList<>(students.length);
+        for (final String s : students) {
+            studentTasks.add(ForkJoinTask.adapt(new Callable<ArrayList<String>>() {
+                public ArrayList<String> call() {
+                    return validateStudent(pathToClass + "/" + s, questionIndex);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(studentTasks);
+        for (ForkJoinTask<ArrayList<String>> task : studentTasks)
+            problems.addAll(task.join());
+        return problems;
+    }
+
+    /**
+     * Check a Student directory the way the Student constructor reads it, but without creating or renaming files
+     * @param pathToStudent Path to the Student directory
+     * @param questionIndex Index of the Questions of the Student's class
+     * @return Description of each problem found in the Student directory
+     */
+    private ArrayList<String> validateStudent(String pathToStudent, QuestionIndex questionIndex) {
+        ArrayList<String> problems = new ArrayList<>();
+        String[] questionHistoryFiles;
+        try {
+            String idText = FileUtilities.fromFileCleaned(pathToStudent + "/id.txt");
+            if (idText.indexOf(FileUtilities.EOL) < 0)
+                problems.add(pathToStudent + "/id.txt: No name found");
+            questionHistoryFiles = Utilities.stringSplit(FileUtilities.fromFileCleaned(pathToStudent + "/index.txt"),
+                    FileUtilities.EOL);
+        } catch (Exception e) {
+            problems.add(describe(pathToStudent, e));
+            return problems;
+        }
+
+        boolean[] found = new boolean[questionIndex.size()];
+        for (String fileName : questionHistoryFiles) {
+            String path = pathToStudent + "/" + fileName;
+            int ordinal = fileName.endsWith(".txt") ?
+                    questionIndex.getOrdinal(fileName.substring(0, fileName.length() - 4)) : -1;
+            if (ordinal < 0 || found[ordinal]) {
+                problems.add(path + ": No Question found for QuestionHistory file");
+                continue;
+            }
+            found[ordinal] = true;
+            Question question = questionIndex.get(ordinal);
+            if (!(question instanceof StaticQuestion)) {
+                problems.add(path + ": Unknown question type found in QuestionHistory file");
+                continue;
+            }
+            // A file still under its legacy name is valid, since the Student constructor renames it
+            if (!new File(path).exists())
+                path = pathToStudent + "/" + FileUtilities.toLegacyDecoding(fileName);
+            try {
+                new StaticQuestionHistory((StaticQuestion) question, path);
+            } catch (Exception e) {
+                problems.add(describe(path, e));
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Check that a config label, if present, has an integer value
+     * @param configText Cleaned text of the config file
+     * @param label Label to check
+     * @param path Path to the config file, for the problem description
+     * @param problems List to add a problem to if the value is not an integer
+     */
+    private static void checkInteger(String configText, String label, String path, ArrayList<String> problems) {
+        String value = FileUtilities.findDataFromLabel(configText, label);
+        if (value == null)
+            return;
+        try {
+            Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            problems.add(path + ": " + label + " is not an integer: " + value);
+        }
+    }
+
+    /**
+     * Describe a problem found while reading part of the directory tree
+     * @param path Path to the part of the tree being read
+     * @param e Exception thrown while reading it
+     * @return Description of the problem
+     */
+    private static String describe(String path, Exception e) {
+        if (e.getMessage() == null)
+            return path + ": " + e.toString();
+        else
+            return path + ": " + e.getMessage();
+    }
+}
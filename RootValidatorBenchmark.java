@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Times RootValidator on a synthetic directory tree, written fresh so that every run checks the same amount of data
+ */
+public class RootValidatorBenchmark {
+    private static final int TIMED_RUNS = 5;
+
+    /**
+     * Write a synthetic directory tree
+     * @param pathToRoot Path to the root of the tree to write, which must not exist yet
+     * @param numClasses Number of classes
+     * @param numStudents Number of Students in each class
+     * @param numQuestions Number of Questions in each class
+     * @param numAnswers Number of answers in each QuestionHistory file
+     * @throws Exception Thrown if the tree cannot be written
+     */
+    public static void makeRoot(String pathToRoot, int numClasses, int numStudents, int numQuestions, int numAnswers)
+            throws Exception {
+        if (new File(pathToRoot).exists())
+            throw new Exception(pathToRoot + " already exists");
+        new File(pathToRoot).mkdirs();
+        FileUtilities.toFile("HistorySyncInterval: 10" + FileUtilities.EOL, pathToRoot + "/config.txt");
+
+        StringBuilder categoryText = new StringBuilder("Type\tnoCaps\tIgnore\tQuestion Text\tAccepted Answers\tTags");
+        categoryText.append(FileUtilities.EOL);
+        StringBuilder studentIndexText = new StringBuilder();
+        for (int q = 0; q < numQuestions; q ++) {
+            categoryText.append("s\ty\t**\tQuestion ").append(q).append("\t{").append(q).append("}\tTag")
+                    .append(q % 10).append(FileUtilities.EOL);
+            studentIndexText.append("Question ").append(q).append(".txt").append(FileUtilities.EOL);
+        }
+        StringBuilder historyText = new StringBuilder("Timestamp\tDuration\tCorrectness\tResponse");
+        historyText.append(FileUtilities.EOL);
+        for (int a = 0; a < numAnswers; a ++) {
+            historyText.append(String.format("2016-07-%02dT10:%02d:00.000\t5\t", a % 28 + 1, a % 60))
+                    .append(a % 3 == 0 ? "w\tWrong" : "r\tRight").append(FileUtilities.EOL);
+        }
+
+        StringBuilder rootIndexText = new StringBuilder();
+        for (int c = 0; c < numClasses; c ++) {
+            String className = "Class" + c;
+            String pathToClass = pathToRoot + "/" + className;
+            rootIndexText.append(className).append(FileUtilities.EOL);
+            new File(pathToClass + "/Questions").mkdirs();
+            FileUtilities.toFile("EmailReportDestination: teacher@example.com" + FileUtilities.EOL,
+                    pathToClass + "/config.txt");
+            FileUtilities.toFile("Category.txt" + FileUtilities.EOL, pathToClass + "/Questions/index.txt");
+            FileUtilities.toFile(categoryText.toString(), pathToClass + "/Questions/Category.txt");
+
+            StringBuilder classIndexText = new StringBuilder();
+            for (int s = 0; s < numStudents; s ++) {
+                String studentName = "Student" + s;
+                String pathToStudent = pathToClass + "/" + studentName;
+                classIndexText.append(studentName).append(FileUtilities.EOL);
+                new File(pathToStudent).mkdirs();
+                FileUtilities.toFile(studentName + FileUtilities.EOL, pathToStudent + "/id.txt");
+                FileUtilities.toFile(studentIndexText.toString(), pathToStudent + "/index.txt");
+                for (int q = 0; q < numQuestions; q ++)
+                    FileUtilities.toFile(historyText.toString(), pathToStudent + "/Question " + q + ".txt");
+            }
+            FileUtilities.toFile(classIndexText.toString(), pathToClass + "/index.txt");
+        }
+        FileUtilities.toFile(rootIndexText.toString(), pathToRoot + "/index.txt");
+    }
+
+    /**
+     * Write a synthetic directory tree and report how long it takes to validate
+     * @param args Path to write the tree to, then optionally the number of classes, Students per class, Questions per
+     *             class and answers per QuestionHistory file
+     * @throws Exception Thrown if the tree cannot be written or is found invalid
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 && args.length != 5) {
+            System.out.println("Usage: RootValidatorBenchmark <path to new root> [<classes> <students> <questions> "
+                    + "<answers>]");
+            System.exit(1);
+        }
+        int numClasses = args.length == 5 ? Integer.parseInt(args[1]) : 50;
+        int numStudents = args.length == 5 ? Integer.parseInt(args[2]) : 200;
+        int numQuestions = args.length == 5 ? Integer.parseInt(args[3]) : 20;
+        int numAnswers = args.length == 5 ? Integer.parseInt(args[4]) : 10;
+
+        long begin = System.nanoTime();
+        makeRoot(args[0], numClasses, numStudents, numQuestions, numAnswers);
+        System.out.println("Wrote " + numClasses + " classes of " + numStudents + " Students with " + numQuestions
+                + " Questions each in " + (System.nanoTime() - begin) / 1000000 + " ms");
+
+        // The first run includes class loading and JIT compilation, so it is reported separately
+        for (int run = 0; run <= TIMED_RUNS; run ++) {
+            long start = System.nanoTime();
+            ArrayList<String> problems = new RootValidator(args[0]).validate();
+            long elapsed = System.nanoTime() - start;
+            if (!problems.isEmpty())
+                throw new Exception("Synthetic root is invalid: " + problems.get(0));
+            System.out.println((run == 0 ? "Cold run: " : "Run " + run + ": ") + elapsed / 1000000 + " ms ("
+                    + Math.round(numClasses * numStudents / (elapsed / 1e9)) + " Students per second)");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.Date;
+import java.util.Properties;
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * MailTransport that delivers emails through an SMTP server (GMail by default), reusing one Session and one
+ * connection for as long as the server keeps it open
+ */
+public class SmtpMailTransport implements MailTransport {
+    private String username;
+    private String password;
+    private String host;
+    private int port;
+    private boolean ssl;
+    private boolean auth;
+    private Session session;
+    private Transport transport;
+
+    /**
+     * Constructor that creates a transport for the GMail SMTP server
+     * @param inUsername GMail username
+     * @param inPassword GMail password
+     */
+    public SmtpMailTransport(String inUsername, String inPassword) {
+        this(inUsername, inPassword, "smtp.gmail.com", 465, true, true);
+    }
+
+    /**
+     * Constructor that creates a transport for any SMTP server
+     * @param inUsername Username of the account to send from; emails are sent from this name at gmail.com
+     * @param inPassword Password of the account to send from
+     * @param inHost Host name of the SMTP server
+     * @param inPort Port of the SMTP server
+     * @param inSsl Whether to connect over SSL (smtps) or in plain text (smtp)
+     * @param inAuth Whether to log in to the server with the username and password
+     */
+    public SmtpMailTransport(String inUsername, String inPassword, String inHost, int inPort, boolean inSsl,
+                             boolean inAuth) {
+        username = inUsername;
+        password = inPassword;
+        host = inHost;
+        port = inPort;
+        ssl = inSsl;
+        auth = inAuth;
+        String protocol = ssl ? "smtps" : "smtp";
+
+        Properties props = new Properties();
+        props.setProperty("mail.transport.protocol", protocol);
+        props.setProperty("mail." + protocol + ".host", host);
+        props.setProperty("mail." + protocol + ".port", "" + port);
+        props.setProperty("mail." + protocol + ".auth", "" + auth);
+        // Do not wait for the server to answer QUIT before closing
+        props.setProperty("mail." + protocol + ".quitwait", "false");
+        session = Session.getInstance(props, null);
+        transport = null;
+    }
+
+    /**
+     * Deliver an email, connecting first if there is no open connection
+     * @param mail Email to deliver
+     * @throws Exception Thrown if the email could not be delivered
+     */
+    public void send(OutgoingMail mail) throws Exception {
+        MimeMessage msg = new MimeMessage(session);
+        msg.setFrom(new InternetAddress(username + "@gmail.com"));
+        msg.setRecipients(Message.RecipientType.TO, InternetAddress.parse(mail.getRecipient(), false));
+        msg.setSubject(mail.getSubject());
+        msg.setText(mail.getBody(), "utf-8");
+        msg.setSentDate(new Date());
+
+        if (transport == null)
+            transport = session.getTransport();
+        if (!transport.isConnected())
+            transport.connect(host, username, password);
+        transport.sendMessage(msg, msg.getAllRecipients());
+    }
+
+    /**
+     * Check whether another transport sends through the same server with the same account and settings
+     * @param o Object to compare with
+     * @return true if o is an SmtpMailTransport with the same configuration, false otherwise
+     */
+    public boolean equals(Object o) {
+        if (!(o instanceof SmtpMailTransport))
+            return false;
+        SmtpMailTransport other = (SmtpMailTransport) o;
+        return username.equals(other.username) && password.equals(other.password) && host.equals(other.host)
+                && port == other.port && ssl == other.ssl && auth == other.auth;
+    }
+
+    /**
+     * Compute a hash code consistent with equals
+     * @return Hash code of the configuration
+     */
+    public int hashCode() {
+        return (username + "@" + host + ":" + port).hashCode();
+    }
+
+    /**
+     * Close the connection to the server, if there is one
+     */
+    public void close() {
+        if (transport == null)
+            return;
+        try {
+            transport.close();
+        } catch (Exception e) {
+            // The connection is being discarded either way
+        }
+        transport = null;
+    }
+}
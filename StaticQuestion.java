@@ -18,14 +18,27 @@
 
 package com.icloud.cs_temporary.EducationApplication;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 /**
- * Question object that is static: the question text and correct answers do not change
+ * Question object that is static: the question text and correct answers do not change. The correct answers are
+ * normalized once, when the StaticQuestion is created, so checking an answer only normalizes the Student's answer and
+ * looks it up. A StaticQuestion may also tolerate a few typing mistakes, accepting any answer within a number of
+ * single-character edits of a correct one.
  */
 public class StaticQuestion extends Question {
+    private static final int ASCII_LIMIT = 128;
+
     private String[] correctAnswers;
     private String question;
     private boolean ignoreCapitalization;
     private char[] ignoreChars;
+    private int tolerance;                          // Edits allowed between an answer and a correct one
+    private HashSet<String> normalizedAnswers;      // Correct answers as checkAnswer compares them
+    private EditDistance[] answerDistances;         // Normalized correct answers compiled for approximate matching
+    private boolean[] ignoredAscii;                 // Whether each ASCII character is ignored
+    private char[] ignoredOther;                    // Ignored characters beyond ASCII, sorted
 
     /**
      * Constructor that creates a new StaticQuestion from scratch
@@ -35,10 +48,26 @@ public class StaticQuestion extends Question {
      * @param inIgnoreChars Which characters will be ignored in the answer
      */
     public StaticQuestion(String[] inCorrect, String inQuestion, boolean inIgnoreCaps, char[] inIgnoreChars) {
+        this(inCorrect, inQuestion, inIgnoreCaps, inIgnoreChars, 0);
+    }
+
+    /**
+     * Constructor that creates a new StaticQuestion from scratch that accepts answers close to a correct one
+     * @param inCorrect List of the correct answers
+     * @param inQuestion Text of the StaticQuestion
+     * @param inIgnoreCaps Whether or not to ignore capitalization in the answer
+     * @param inIgnoreChars Which characters will be ignored in the answer
+     * @param inTolerance Number of single-character insertions, deletions and substitutions to allow; 0 for exact
+     *                    matching
+     */
+    public StaticQuestion(String[] inCorrect, String inQuestion, boolean inIgnoreCaps, char[] inIgnoreChars,
+                          int inTolerance) {
         correctAnswers = inCorrect;
         question = inQuestion;
         ignoreCapitalization = inIgnoreCaps;
         ignoreChars = inIgnoreChars;
+        tolerance = inTolerance;
+        compileAnswers();
     }
 
     /**
@@ -53,7 +82,7 @@ public class StaticQuestion extends Question {
         // Get fields that come before the braces
         String[] fields = Utilities.stringSplit(fileLine.substring(0, fileLine.indexOf('{')), '\t');
         // 2nd Field is y/n for ignoring capitalization
-        if (fields[1].equals('y'))
+        if (fields[1].equals("y"))
             ignoreCapitalization = true;
         else
             ignoreCapitalization = false;
@@ -71,6 +100,11 @@ public class StaticQuestion extends Question {
 
         // 4th Field contains question text
         question = fields[3];
+        // Optional 5th Field is the number of edits to tolerate in an answer
+        if (fields.length > 4)
+            tolerance = Integer.parseInt(fields[4]);
+        else
+            tolerance = 0;
 
         // Get the tags that are listed after the braces
         String[] tags = Utilities.stringSplit(fileLine.substring(fileLine.indexOf('}') + 1), '\t');
@@ -78,6 +112,74 @@ public class StaticQuestion extends Question {
             addTag(tag);
         }
         addTag("StaticQuestion");
+        compileAnswers();
+    }
+
+    /**
+     * Build the lookup tables of ignored characters and normalize the correct answers
+     */
+    private void compileAnswers() {
+        ignoredAscii = new boolean[ASCII_LIMIT];
+        StringBuilder other = new StringBuilder();
+        for (char c : ignoreChars) {
+            if (c < ASCII_LIMIT)
+                ignoredAscii[c] = true;
+            else
+                other.append(c);
+        }
+        ignoredOther = other.toString().toCharArray();
+        Arrays.sort(ignoredOther);
+
+        normalizedAnswers = new HashSet<>(correctAnswers.length * 2);
+        for (String correct : correctAnswers)
+            normalizedAnswers.add(normalize(correct));
+        if (tolerance > 0) {
+            answerDistances = new EditDistance[normalizedAnswers.size()];
+            int i = 0;
+            for (String normalized : normalizedAnswers)
+                answerDistances[i ++] = new EditDistance(normalized);
+        } else
+            answerDistances = new EditDistance[0];
+    }
+
+    /**
+     * Put an answer in the form answers are compared in: lowercased if capitalization is ignored, and without the
+     * ignored characters
+     * @param answer Answer to normalize
+     * @return Normalized answer
+     */
+    private String normalize(String answer) {
+        // Most answers are ASCII, which is lowercased and filtered in a single pass
+        char[] normalized = new char[answer.length()];
+        int length = 0;
+        for (int i = 0; i < answer.length(); i ++) {
+            char c = answer.charAt(i);
+            if (c >= ASCII_LIMIT)
+                return normalizeUnicode(answer);
+            if (ignoreCapitalization && c >= 'A' && c <= 'Z')
+                c += 'a' - 'A';
+            if (!ignoredAscii[c])
+                normalized[length ++] = c;
+        }
+        return new String(normalized, 0, length);
+    }
+
+    /**
+     * Normalize an answer that is not entirely ASCII, whose lowercase form may differ in length
+     * @param answer Answer to normalize
+     * @return Normalized answer
+     */
+    private String normalizeUnicode(String answer) {
+        if (ignoreCapitalization)
+            answer = answer.toLowerCase();
+        StringBuilder normalized = new StringBuilder(answer.length());
+        for (int i = 0; i < answer.length(); i ++) {
+            char c = answer.charAt(i);
+            boolean ignored = c < ASCII_LIMIT ? ignoredAscii[c] : Arrays.binarySearch(ignoredOther, c) >= 0;
+            if (!ignored)
+                normalized.append(c);
+        }
+        return normalized.toString();
     }
 
     /**
@@ -94,21 +196,12 @@ public class StaticQuestion extends Question {
      * @return True if the answer is true, false otherwise
      */
     public boolean checkAnswer(String answer) {
-        if (ignoreCapitalization)
-            answer = answer.toLowerCase();
-        for (char toIgnore : ignoreChars) {
-            answer = answer.replace(toIgnore + "", "");
-        }
-        for (String correct : correctAnswers) {
-            String correctChanged = correct;
-            if (ignoreCapitalization)
-                correctChanged = correctChanged.toLowerCase();
-            for (char toIgnore : ignoreChars) {
-                correctChanged = correctChanged.replace(toIgnore + "", "");
-            }
-            if (correctChanged.equals(answer))
+        String normalized = normalize(answer);
+        if (normalizedAnswers.contains(normalized))
+            return true;
+        for (EditDistance correct : answerDistances)
+            if (correct.isWithin(normalized, tolerance))
                 return true;
-        }
         return false;
     }
 
@@ -152,8 +245,13 @@ public class StaticQuestion extends Question {
         else
             ignoreCaps = "n";
 
-        return "s\t" + ignoreCaps + '\t' + charsIgnoreString + '\t' + question + '\t' + '{' + correctAnswersString
-                + '}' + '\t' + tagsString;
+        // The tolerance is only written when there is one, so files stay readable by older versions
+        String toleranceString = "";
+        if (tolerance > 0)
+            toleranceString = tolerance + "\t";
+
+        return "s\t" + ignoreCaps + '\t' + charsIgnoreString + '\t' + question + '\t' + toleranceString + '{'
+                + correctAnswersString + '}' + '\t' + tagsString;
     }
 
     /**
@@ -163,4 +261,12 @@ public class StaticQuestion extends Question {
     public String[] getCorrectAnswers() {
         return correctAnswers;
     }
+
+    /**
+     * Get the number of edits tolerated between an answer and a correct one
+     * @return Number of single-character insertions, deletions and substitutions allowed; 0 for exact matching
+     */
+    public int getTolerance() {
+        return tolerance;
+    }
 }
@@ -18,15 +18,61 @@
 
 package com.icloud.cs_temporary.EducationApplication;
 
+import java.io.File;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * Object for storing the history of a Student's answers to a StaticQuestion
+ * Object for storing the history of a Student's answers to a StaticQuestion. All access to the responses and the
+ * statistics kept from them is synchronized on the object, so sessions of the same Student can share it.
+ *
+ * Responses are stored column by column in primitive arrays rather than as one StaticQuestionAnswerRecord each, so a
+ * long history costs a few bytes per response instead of several objects. Timestamps are kept as LocalDateTime epoch
+ * seconds and nanoseconds (counted as if they were UTC, which is exact), and the text of each response is kept as
+ * UTF-8 and only turned back into a String when a record is asked for.
  */
 public class StaticQuestionHistory extends QuestionHistory {
-    private ArrayList<StaticQuestionAnswerRecord> responses;
+    // Only responses from this many days ago or fewer count towards the percent correct used for mastery
+    private static final int MASTERY_WINDOW_DAYS = 7;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Response columns; entry i of each describes the i'th response
+    private int size;
+    private long[] seconds;
+    private int[] nanos;
+    private int[] durations;                        // Seconds, saturated to the range of an int
+    private BitSet correct;
+    private byte[] responseBytes;                   // UTF-8 text of all the responses, one after another
+    private int[] responseEnds;                     // Index in responseBytes just after each response
+    private ResponseJournal journal;
+    private int syncInterval;                       // Records appended between forcing the file to disk
+
+    // Mastery statistics kept up to date as responses are added
+    private boolean chronological;                  // Whether responses are in order of their timestamps
+    private int windowStart;                        // Index of the oldest response still in the mastery window
+    private int windowRight;
+    private int windowWrong;
+    private boolean hasCorrect;                     // Whether any response was right
+    private long lastCorrectSecond;                 // Timestamp of the latest correct response, if there is one
+    private int lastCorrectNano;
+    private int maxSpan;                            // Longest span in days between consecutive correct responses
+    private double cachedMastery;
+    private LocalDateTime cacheExpiry;              // When cachedMastery may next change; null if not computed
+
+    // Where the responses came from, so that a history made from a summary can read them when first needed
+    private String filepath;                        // Null for a history created from scratch
+    private boolean loaded;                         // Whether every response is in the columns
+    private int omitted;                            // Responses counted in the statistics but not in the columns
+    private long knownTextLength;                   // Bytes of the text journal reflected in memory; -1 if unknown
+    private long archiveLength;                     // Length of the binary archive read; -1 if there was none
+    private long archiveModified;
 
     /**
      * Constructor to create a new object from scratch
@@ -34,23 +80,129 @@ public class StaticQuestionHistory extends QuestionHistory {
      */
     public StaticQuestionHistory(StaticQuestion inQuestion) {
         super(inQuestion);
-        responses = new ArrayList<>();
+        size = 0;
+        seconds = new long[INITIAL_CAPACITY];
+        nanos = new int[INITIAL_CAPACITY];
+        durations = new int[INITIAL_CAPACITY];
+        correct = new BitSet();
+        responseBytes = new byte[INITIAL_CAPACITY * 8];
+        responseEnds = new int[INITIAL_CAPACITY];
+        chronological = true;
+        hasCorrect = false;
+        syncInterval = ResponseJournal.SYNC_NEVER;
+        filepath = null;
+        loaded = true;
+        omitted = 0;
+        knownTextLength = -1;
+        archiveLength = -1;
+        archiveModified = 0;
     }
 
     /**
      * Constructor to create a new object from the file system
      * @param inQuestion Question whose history will be recorded
-     * @param filepath Path to the file that holds a representation of the history
+     * @param inFilepath Path to the file that holds a representation of the history
      * @throws Exception Thrown if the file does not exist or the path is invalid
      */
-    public StaticQuestionHistory(StaticQuestion inQuestion, String filepath) throws Exception {
-        super(inQuestion);
-        String fileText = FileUtilities.fromFileCleaned(filepath);
-        String[] fileLines = Utilities.stringSplit(fileText, FileUtilities.EOL);
-        responses = new ArrayList<>();
-        for (int i = 1; i < fileLines.length; i ++) {
-            responses.add(new StaticQuestionAnswerRecord(fileLines[i]));
+    public StaticQuestionHistory(StaticQuestion inQuestion, String inFilepath) throws Exception {
+        this(inQuestion);
+        filepath = inFilepath;
+        load();
+    }
+
+    /**
+     * Constructor to create a new object from a summary of the file system, reading only the responses appended to
+     * the file since the summary was made; the rest are read the first time they are needed
+     * @param inQuestion Question whose history will be recorded
+     * @param inFilepath Path to the file that holds a representation of the history
+     * @param summary Summary of the file, which must be current
+     * @throws Exception Thrown if the file does not exist or the path is invalid
+     */
+    public StaticQuestionHistory(StaticQuestion inQuestion, String inFilepath, HistorySummary summary)
+            throws Exception {
+        this(inQuestion);
+        filepath = inFilepath;
+        loaded = false;
+        archiveLength = summary.getArchiveLength();
+        archiveModified = summary.getArchiveModified();
+        omitted = summary.getCount() - summary.getRecentCount();
+        maxSpan = summary.getMaxSpan();
+        if (summary.getLastCorrect() != null) {
+            hasCorrect = true;
+            lastCorrectSecond = summary.getLastCorrect().toEpochSecond(ZoneOffset.UTC);
+            lastCorrectNano = summary.getLastCorrect().getNano();
+        }
+        // Only the responses that can still count towards mastery are kept, without their text
+        ensureCapacity(summary.getRecentCount());
+        for (int i = 0; i < summary.getRecentCount(); i ++) {
+            addColumns(summary.getRecentSecond(i), summary.getRecentNano(i), 0, summary.getRecentCorrect(i),
+                    new byte[0]);
+            if (summary.getRecentCorrect(i))
+                windowRight ++;
+            else
+                windowWrong ++;
         }
+
+        byte[] newText = summary.readNewText(filepath);
+        int end = newText.length;
+        while (end > 0 && newText[end - 1] != '\n')
+            end --;
+        for (String line : ResponseJournal.splitLines(new String(newText, 0, end, FileUtilities.CHARSET)))
+            record(new StaticQuestionAnswerRecord(line));
+        knownTextLength = summary.getTextLength() + end;
+    }
+
+    /**
+     * Read every response from the file system, replacing whatever is in memory
+     * @throws Exception Thrown if the file does not exist or the path is invalid
+     */
+    private void load() throws Exception {
+        size = 0;
+        omitted = 0;
+        correct.clear();
+        chronological = true;
+        windowStart = 0;
+        windowRight = 0;
+        windowWrong = 0;
+        hasCorrect = false;
+        maxSpan = 0;
+        cacheExpiry = null;
+
+        File archive = new File(BinaryHistoryFile.getArchivePath(filepath));
+        archiveLength = archive.exists() ? archive.length() : -1;
+        archiveModified = archive.exists() ? archive.lastModified() : 0;
+        // Older responses may have been compacted into a binary archive next to the file
+        long[] textLength = new long[1];
+        ArrayList<StaticQuestionAnswerRecord> history = BinaryHistoryFile.readHistory(filepath, textLength);
+        ensureCapacity(history.size());
+        for (StaticQuestionAnswerRecord ar : history)
+            record(ar);
+        knownTextLength = textLength[0];
+        loaded = true;
+    }
+
+    /**
+     * Read every response if the history was made from a summary and they have not been read yet
+     * @throws IllegalStateException Thrown if the file can no longer be read
+     */
+    private void ensureLoaded() {
+        if (loaded)
+            return;
+        try {
+            load();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not read QuestionHistory file " + filepath, e);
+        }
+    }
+
+    /**
+     * Set how often answers added to the history are forced to disk
+     * @param inSyncInterval Number of records to append between forcing the file to disk, or
+     *                       ResponseJournal.SYNC_NEVER to leave flushing to the operating system
+     */
+    public synchronized void setSyncInterval(int inSyncInterval) {
+        syncInterval = inSyncInterval;
+        journal = null;
     }
 
     /**
@@ -61,27 +213,201 @@ public class StaticQuestionHistory extends QuestionHistory {
      * @param path Path to the file that holds a representation of the history
      * @throws Exception Thrown if the file does not exist or the path is invalid
      */
-    public void addResponse(String response, Duration duration, boolean correct, String path) throws Exception {
-        StaticQuestionAnswerRecord sqr = new StaticQuestionAnswerRecord(response, duration, correct);
-        responses.add(sqr);
-        String newLine = sqr.toString() + FileUtilities.EOL;
-        FileUtilities.toFile(FileUtilities.fromFileCleaned(path) + newLine, path);
+    public synchronized void addResponse(String response, Duration duration, boolean correct, String path)
+            throws Exception {
+        addResponses(Collections.singletonList(new StaticQuestionAnswerRecord(response, duration, correct)), path);
+    }
+
+    /**
+     * Add answers to the history with a single write to its file, keeping the timestamps they carry
+     * @param records Answers to add, in the order to write them
+     * @param path Path to the file that holds a representation of the history
+     * @throws Exception Thrown if the file does not exist or the path is invalid
+     */
+    public synchronized void addResponses(List<StaticQuestionAnswerRecord> records, String path) throws Exception {
+        if (records.isEmpty())
+            return;
+        if (journal == null || !journal.getPath().equals(path))
+            journal = new ResponseJournal(path, syncInterval);
+        String[] lines = new String[records.size()];
+        long length = 0;
+        for (int i = 0; i < lines.length; i ++) {
+            lines[i] = records.get(i).toString();
+            length += (lines[i] + FileUtilities.EOL).getBytes(FileUtilities.CHARSET).length;
+        }
+        long start = journal.append(lines);
+        // If anything else wrote to the file, memory no longer reflects a known prefix of it
+        if (path.equals(filepath) && start == knownTextLength)
+            knownTextLength += length;
+        else
+            knownTextLength = -1;
+        ensureCapacity(size + records.size());
+        for (StaticQuestionAnswerRecord sqr : records)
+            record(sqr);
+    }
+
+    /**
+     * Get the number of responses in the history
+     * @return Number of responses
+     */
+    public synchronized int getResponseCount() {
+        return omitted + size;
+    }
+
+    /**
+     * Get a response from the history
+     * @param i Position of the response, in the order the responses were recorded
+     * @return New record of the response
+     */
+    public synchronized StaticQuestionAnswerRecord getResponse(int i) {
+        ensureLoaded();
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Response " + i + " of " + size);
+        int start = i == 0 ? 0 : responseEnds[i - 1];
+        String response = new String(responseBytes, start, responseEnds[i] - start, FileUtilities.CHARSET);
+        StaticQuestionAnswerRecord ar = new StaticQuestionAnswerRecord(response, Duration.ofSeconds(durations[i]),
+                correct.get(i));
+        ar.setTimestamp(LocalDateTime.ofEpochSecond(seconds[i], nanos[i], ZoneOffset.UTC));
+        return ar;
+    }
+
+    /**
+     * Make room for more responses
+     * @param capacity Number of responses to make room for in total
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= seconds.length)
+            return;
+        int newCapacity = Math.max(capacity, seconds.length + (seconds.length >> 1));
+        seconds = Arrays.copyOf(seconds, newCapacity);
+        nanos = Arrays.copyOf(nanos, newCapacity);
+        durations = Arrays.copyOf(durations, newCapacity);
+        responseEnds = Arrays.copyOf(responseEnds, newCapacity);
+    }
+
+    /**
+     * Add an answer to the response columns and fold it into the mastery statistics
+     * @param ar Answer to add
+     */
+    private void record(StaticQuestionAnswerRecord ar) {
+        long second = ar.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        int nano = ar.getTimestamp().getNano();
+        addColumns(second, nano, ar.getDuration().getSeconds(), ar.getCorrect(),
+                ar.getResponse().getBytes(FileUtilities.CHARSET));
+        if (ar.getCorrect()) {
+            windowRight ++;
+            if (hasCorrect) {
+                int span = Math.abs((int) daysBetween(second, nano, lastCorrectSecond, lastCorrectNano));
+                if (span > maxSpan)
+                    maxSpan = span;
+            }
+            hasCorrect = true;
+            lastCorrectSecond = second;
+            lastCorrectNano = nano;
+        } else
+            windowWrong ++;
+        cacheExpiry = null;
+    }
+
+    /**
+     * Add a response to the end of the columns
+     * @param second Epoch second of the response's timestamp
+     * @param nano Nanosecond of the response's timestamp
+     * @param duration Seconds the Student spent on the Question
+     * @param isCorrect Whether the Student was right
+     * @param response UTF-8 text of the Student's answer
+     */
+    private void addColumns(long second, int nano, long duration, boolean isCorrect, byte[] response) {
+        ensureCapacity(size + 1);
+        if (size > 0 && (second < seconds[size - 1] || (second == seconds[size - 1] && nano < nanos[size - 1])))
+            chronological = false;
+        seconds[size] = second;
+        nanos[size] = nano;
+        durations[size] = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, duration));
+        correct.set(size, isCorrect);
+
+        int start = size == 0 ? 0 : responseEnds[size - 1];
+        if (start + response.length > responseBytes.length)
+            responseBytes = Arrays.copyOf(responseBytes,
+                    Math.max(start + response.length, responseBytes.length + (responseBytes.length >> 1)));
+        System.arraycopy(response, 0, responseBytes, start, response.length);
+        responseEnds[size] = start + response.length;
+        size ++;
+    }
+
+    /**
+     * Count the whole days from one time to another, rounding the same way as Duration.toDays
+     * @param fromSecond Epoch second of the earlier time
+     * @param fromNano Nanosecond of the earlier time
+     * @param toSecond Epoch second of the later time
+     * @param toNano Nanosecond of the later time
+     * @return Number of whole days between the times, negative if the later time is in fact earlier
+     */
+    private static long daysBetween(long fromSecond, int fromNano, long toSecond, int toNano) {
+        long difference = toSecond - fromSecond;
+        if (toNano < fromNano)
+            difference --;
+        return difference / SECONDS_PER_DAY;
     }
 
     /**
-     * Get the Student's overall progress expressed as a double in the interval [0,1]
+     * Summarize the statistics needed for mastery, so that the history can be made again without reading the file
+     * @return Summary of the history, or null if it cannot be summarized because its responses are out of order or
+     * memory may not match the file
+     * @throws Exception Thrown if the file cannot be read
+     */
+    public synchronized HistorySummary getSummary() throws Exception {
+        if (filepath == null || knownTextLength < 0 || !chronological)
+            return null;
+        LocalDateTime now = LocalDateTime.now();
+        long nowSecond = now.toEpochSecond(ZoneOffset.UTC);
+        int nowNano = now.getNano();
+        // Responses are in order, so the ones that can still count towards mastery are the last ones
+        int first = size;
+        while (first > 0
+                && daysBetween(seconds[first - 1], nanos[first - 1], nowSecond, nowNano) <= MASTERY_WINDOW_DAYS)
+            first --;
+        long[] recentSeconds = Arrays.copyOfRange(seconds, first, size);
+        int[] recentNanos = Arrays.copyOfRange(nanos, first, size);
+        boolean[] recentCorrect = new boolean[size - first];
+        for (int i = first; i < size; i ++)
+            recentCorrect[i - first] = correct.get(i);
+        LocalDateTime lastCorrect = hasCorrect ?
+                LocalDateTime.ofEpochSecond(lastCorrectSecond, lastCorrectNano, ZoneOffset.UTC) : null;
+        return new HistorySummary(filepath, knownTextLength, archiveLength, archiveModified, omitted + size, maxSpan,
+                lastCorrect, recentSeconds, recentNanos, recentCorrect);
+    }
+
+    /**
+     * Get the Student's overall progress expressed as a double in the interval [0,1]. The result is cached until
+     * a response is added or enough time passes for it to change.
      * @return The average of the percentMastery on each individual StaticQuestion
      */
-    public double getPercentMastered() {
-        if (responses.size() == 0)
+    public synchronized double getPercentMastered() {
+        LocalDateTime now = LocalDateTime.now();
+        if (cacheExpiry == null || !now.isBefore(cacheExpiry)) {
+            cachedMastery = getPercentMastered(now);
+            cacheExpiry = getMasteryExpiry(now);
+        }
+        return cachedMastery;
+    }
+
+    /**
+     * Get the Student's overall progress as of a given time
+     * @param now Time to calculate progress at
+     * @return The average of the percentMastery on each individual StaticQuestion
+     */
+    private double getPercentMastered(LocalDateTime now) {
+        if (omitted + size == 0)
             return 0;
         // TODO: Include duration in calculation (Maybe need to include expected time?)
-        double percentCorrect = getPercentCorrect(7);       // Only last 7 days' responses used
+        double percentCorrect = getPercentCorrect(MASTERY_WINDOW_DAYS, now);
         int wait = getWaitingTime();
         if (wait == 0)
             return 0;   // Never right before
-        double percentMastery = percentCorrect * (1 - (getDaysSinceLastCorrect() / (2 * wait)));
-        if (getDaysSinceLastCorrect() == Integer.MAX_VALUE)
+        int daysSinceLastCorrect = getDaysSinceLastCorrect(now);
+        double percentMastery = percentCorrect * (1 - (daysSinceLastCorrect / (2 * wait)));
+        if (daysSinceLastCorrect == Integer.MAX_VALUE)
             return 0;
         else if (percentMastery < 0.0)
             return 0;
@@ -89,18 +415,45 @@ public class StaticQuestionHistory extends QuestionHistory {
             return percentMastery;
     }
 
+    /**
+     * Get the earliest time at which the mastery calculated at a given time could change without a new response:
+     * when the oldest response in the window leaves it, or when another day passes since the last correct answer
+     * @param now Time the mastery was calculated at
+     * @return Time until which the mastery stays the same
+     */
+    private LocalDateTime getMasteryExpiry(LocalDateTime now) {
+        if (!chronological)
+            return now;
+        LocalDateTime expiry = LocalDateTime.MAX;
+        if (windowStart < size)
+            expiry = LocalDateTime.ofEpochSecond(seconds[windowStart], nanos[windowStart], ZoneOffset.UTC)
+                    .plusDays(MASTERY_WINDOW_DAYS + 1);
+        if (hasCorrect) {
+            LocalDateTime nextDay = LocalDateTime.ofEpochSecond(lastCorrectSecond, lastCorrectNano, ZoneOffset.UTC)
+                    .plusDays(getDaysSinceLastCorrect(now) + 1);
+            if (nextDay.isBefore(expiry))
+                expiry = nextDay;
+        }
+        return expiry;
+    }
+
     /**
      * Get the number of days since the question was last answered correctly
      * @return Number of days since the question was last correctly answered, or MAX_VALUE if it was always missed
      */
-    public int getDaysSinceLastCorrect() {
-        for (int i = responses.size() - 1; i <= 0; i ++) {
-            StaticQuestionAnswerRecord ar = responses.get(i);
-            if (ar.getCorrect()) {
-                return (int) Duration.between(ar.getTimestamp(), LocalDateTime.now()).toDays();
-            }
-        }
-        return Integer.MAX_VALUE;
+    public synchronized int getDaysSinceLastCorrect() {
+        return getDaysSinceLastCorrect(LocalDateTime.now());
+    }
+
+    /**
+     * Get the number of days between the last correct answer and a given time
+     * @param now Time to count days until
+     * @return Number of days since the question was last correctly answered, or MAX_VALUE if it was always missed
+     */
+    private int getDaysSinceLastCorrect(LocalDateTime now) {
+        if (!hasCorrect)
+            return Integer.MAX_VALUE;
+        return (int) daysBetween(lastCorrectSecond, lastCorrectNano, now.toEpochSecond(ZoneOffset.UTC), now.getNano());
     }
 
     /**
@@ -108,46 +461,72 @@ public class StaticQuestionHistory extends QuestionHistory {
      * Calculated as Int((Longest span between consecutive corrects) * 1.2 + 1)
      * @return Days to wait until asking the question again
      */
-    public int getWaitingTime() {
-        int maxSpan = 0;
-        StaticQuestionAnswerRecord last = null;
-        for (StaticQuestionAnswerRecord ar : responses) {
-            if (last == null && ar.getCorrect())
-                last = ar;
-        }
-        if (last == null) {
+    public synchronized int getWaitingTime() {
+        if (!hasCorrect)
             return 0;
-        }
-        for (StaticQuestionAnswerRecord ar : responses) {
-            if (ar.getCorrect()) {
-                int span = Math.abs((int) Duration.between(ar.getTimestamp(), last.getTimestamp()).toDays());
-                if (span > maxSpan) {
-                    maxSpan = span;
-                }
-                last = ar;
-            }
-        }
         return (int) (maxSpan * 1.2) + 1;
     }
 
+    /**
+     * Get when the question is next due to be asked: the waiting time after the last correct response
+     * @return Time at which the question is due, or null if it has never been answered correctly
+     */
+    public synchronized LocalDateTime getDueTime() {
+        if (!hasCorrect)
+            return null;
+        return LocalDateTime.ofEpochSecond(lastCorrectSecond, lastCorrectNano, ZoneOffset.UTC)
+                .plusDays(getWaitingTime());
+    }
+
     /**
      * Get the percentage of all responses less than or equal to maxDaysAgo days ago that were right
      * @param maxDaysAgo Number of days ago to include in search
      * @return Percentage of all responses less than or equal to maxDaysAgo days ago that were right as a double,
      * 0 if no responses, in the interval [0,1]
      */
-    public double getPercentCorrect(int maxDaysAgo) {
+    public synchronized double getPercentCorrect(int maxDaysAgo) {
+        return getPercentCorrect(maxDaysAgo, LocalDateTime.now());
+    }
+
+    /**
+     * Get the percentage of all responses less than or equal to maxDaysAgo days before a given time that were right
+     * @param maxDaysAgo Number of days ago to include in search
+     * @param now Time to count days back from
+     * @return Percentage of the responses that were right as a double, 0 if no responses, in the interval [0,1]
+     */
+    private double getPercentCorrect(int maxDaysAgo, LocalDateTime now) {
         double right = 0;
         double wrong = 0;
+        long nowSecond = now.toEpochSecond(ZoneOffset.UTC);
+        int nowNano = now.getNano();
 
-        for (StaticQuestionAnswerRecord ar : responses) {
-            int daysAgo = (int) Duration.between(ar.getTimestamp(), LocalDateTime.now()).toDays();
-            if (ar.getCorrect() && daysAgo <= maxDaysAgo)
-                right ++;
-            else if (!ar.getCorrect() && daysAgo <= maxDaysAgo)
-                wrong ++;
+        // Only the window can be counted from a summary; any other count needs every response
+        if (maxDaysAgo != MASTERY_WINDOW_DAYS || !chronological)
+            ensureLoaded();
+        if (maxDaysAgo == MASTERY_WINDOW_DAYS && chronological) {
+            // Slide the window past responses that have become too old; the newer ones are all still inside it
+            while (windowStart < size
+                    && daysBetween(seconds[windowStart], nanos[windowStart], nowSecond, nowNano) > maxDaysAgo) {
+                if (correct.get(windowStart))
+                    windowRight --;
+                else
+                    windowWrong --;
+                windowStart ++;
+            }
+            right = windowRight;
+            wrong = windowWrong;
+        } else {
+            for (int i = 0; i < size; i ++) {
+                int daysAgo = (int) daysBetween(seconds[i], nanos[i], nowSecond, nowNano);
+                if (correct.get(i) && daysAgo <= maxDaysAgo)
+                    right ++;
+                else if (!correct.get(i) && daysAgo <= maxDaysAgo)
+                    wrong ++;
+            }
         }
 
+        if (right + wrong == 0)
+            return 0;
         return right / (right + wrong);
     }
 
@@ -171,10 +550,13 @@ public class StaticQuestionHistory extends QuestionHistory {
      * Get a String representation of the object
      * @return String representation of the object
      */
-    public String toString() {
-        String toReturn = "StaticQuestionHistory for [" + getQuestion().toString() + "]" + FileUtilities.EOL;
-        for (StaticQuestionAnswerRecord ans : responses)
-            toReturn += ans.toString() + FileUtilities.EOL;
-        return toReturn;
+    public synchronized String toString() {
+        ensureLoaded();
+        StringBuilder toReturn = new StringBuilder();
+        toReturn.append("StaticQuestionHistory for [").append(getQuestion().toString()).append("]")
+                .append(FileUtilities.EOL);
+        for (int i = 0; i < size; i ++)
+            toReturn.append(getResponse(i).toString()).append(FileUtilities.EOL);
+        return toReturn.toString();
     }
 }
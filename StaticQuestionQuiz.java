@@ -21,14 +21,16 @@ package com.icloud.cs_temporary.EducationApplication;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Quiz made up of StaticQuestions for a Student to take
  */
 public class StaticQuestionQuiz extends Quiz {
     private ArrayList<StaticQuestion> quiz;             // Just the StaticQuestions to be asked
-    private ArrayList<StaticQuestionHistory> pool;      // All QuestionHistories that have the needed tags and are Static
+    private BitSet pool;                                // Ordinals of all Questions that have the needed tags
     private int numToAsk;
     private int quizIndex;
     private LocalDateTime start;
@@ -45,17 +47,24 @@ public class StaticQuestionQuiz extends Quiz {
         quizIndex = 0;
 
         String[] questionTexts = Utilities.stringSplit(FileUtilities.fromFileCleaned(pathToCustomQuiz), FileUtilities.EOL);
-        for (QuestionHistory qh : getStudent().getQuestionHistories()) {
-            if (qh instanceof StaticQuestionHistory) {
-                StaticQuestionHistory sqh = (StaticQuestionHistory) qh;
-                for (String questionText : questionTexts) {
-                    if (sqh.getQuestion().getQuestionText().equals(questionText))
-                        quiz.add((StaticQuestion) sqh.getQuestion());
-                }
-            }
+        for (String questionText : questionTexts) {
+            QuestionHistory qh = getStudent().getQuestionHistory(questionText);
+            if (qh instanceof StaticQuestionHistory)
+                quiz.add((StaticQuestion) qh.getQuestion());
         }
     }
 
+    /**
+     * Constructor to create a new StaticQuestionQuiz that asks given StaticQuestions in order
+     * @param inStudent Student who will take the quiz
+     * @param inQuiz StaticQuestions to ask
+     */
+    public StaticQuestionQuiz(Student inStudent, List<StaticQuestion> inQuiz) {
+        super(inStudent);
+        quiz = new ArrayList<>(inQuiz);
+        quizIndex = 0;
+    }
+
     /**
      * Constructor to create a new StaticQuestionQuiz
      * @param inNumToAsk Number of Questions to ask
@@ -64,16 +73,26 @@ public class StaticQuestionQuiz extends Quiz {
      *             An empty Array signals no restriction by tag
      */
     public StaticQuestionQuiz(int inNumToAsk, Student inStudent, String[] tags) {
+        this(inNumToAsk, inStudent, new String[][] {tags});
+    }
+
+    /**
+     * Constructor to create a new StaticQuestionQuiz from several sets of tags, ranking the questions only once
+     * @param inNumToAsk Number of Questions to ask
+     * @param inStudent Student who will be taking the Quiz
+     * @param tagLists Arrays of tags; a Question is included if it has every tag of any one of the Arrays
+     *                 An empty Array signals no restriction by tag
+     */
+    public StaticQuestionQuiz(int inNumToAsk, Student inStudent, String[][] tagLists) {
         super(inStudent);
         quiz = new ArrayList<>();
         quizIndex = 0;
         numToAsk = inNumToAsk;
-        pool = new ArrayList<>();
+        pool = new BitSet();
 
-        for (QuestionHistory qh : getTaggedQuestionHistories(tags)) {
-            if (qh instanceof StaticQuestionHistory)
-                pool.add((StaticQuestionHistory) qh);
-        }
+        TagIndex tagIndex = getStudent().getQuestionIndex().getTagIndex();
+        for (String[] tags : tagLists)
+            pool.or(tagIndex.getQuestionsWithAllTags(tags));
 
         makeQuiz();
     }
@@ -81,15 +100,14 @@ public class StaticQuestionQuiz extends Quiz {
     /**
      * Search the Student's QuestionHistories based on a new set of tags (all tags must be present for a Question to
      * be included), add the resulting questions (without duplication) to the pool, and re-create the quiz from that
-     * pool
-     * @param tags
+     * pool if it grew
+     * @param tags Array of tags, each of which must be present in each Question added
      */
     public void moreTags(String[] tags) {
-        for (QuestionHistory qh : getTaggedQuestionHistories(tags)) {
-            if (qh instanceof StaticQuestionHistory && pool.indexOf(qh) == -1)
-                pool.add((StaticQuestionHistory) qh);
-        }
-        makeQuiz();
+        int before = pool.cardinality();
+        pool.or(getStudent().getQuestionIndex().getTagIndex().getQuestionsWithAllTags(tags));
+        if (pool.cardinality() != before)
+            makeQuiz();
     }
 
     /**
@@ -97,16 +115,24 @@ public class StaticQuestionQuiz extends Quiz {
      */
     private void makeQuiz() {
         quiz.clear();
-        Collections.sort(pool);
 
-        int quizSize;
-        if (numToAsk > pool.size())
-            quizSize = pool.size();
-        else
-            quizSize = numToAsk;
+        ArrayList<StaticQuestionHistory> candidates = new ArrayList<>(pool.cardinality());
+        for (int i = pool.nextSetBit(0); i >= 0; i = pool.nextSetBit(i + 1)) {
+            QuestionHistory qh = getStudent().getQuestionHistory(i);
+            if (qh instanceof StaticQuestionHistory)
+                candidates.add((StaticQuestionHistory) qh);
+        }
+
+        // A negative request asks for nothing
+        int quizSize = Math.max(0, Math.min(numToAsk, candidates.size()));
+
+        // Take one snapshot of each mastery so the ranking cannot shift while it is being made
+        double[] mastery = new double[candidates.size()];
+        for (int i = 0; i < mastery.length; i ++)
+            mastery[i] = candidates.get(i).getPercentMastered();
 
-        for (int i = 0; i < quizSize; i ++)
-            quiz.add((StaticQuestion) pool.get(i).getQuestion());
+        for (int i : Utilities.lowestIndices(mastery, quizSize))
+            quiz.add((StaticQuestion) candidates.get(i).getQuestion());
 
         Collections.shuffle(quiz);
     }
@@ -131,12 +157,12 @@ public class StaticQuestionQuiz extends Quiz {
         LocalDateTime end = LocalDateTime.now();
         Duration duration = Duration.between(start, end);
         boolean correctness = quiz.get(quizIndex).checkAnswer(answer);
-        ArrayList<QuestionHistory> histories = getStudent().getQuestionHistories();
-        for (QuestionHistory qh : histories) {
-            if (qh.getQuestion().equals(quiz.get(quizIndex)))
-                // TODO: Handle invalid file names in question texts
-                ((StaticQuestionHistory) qh).addResponse(answer, duration, correctness, getStudent().getFilepath()
-                        + "/" + quiz.get(quizIndex).getQuestionText() + ".txt");
+        QuestionHistory qh = getStudent().getQuestionHistory(quiz.get(quizIndex));
+        if (qh != null) {
+            // TODO: Handle invalid file names in question texts
+            ((StaticQuestionHistory) qh).addResponse(answer, duration, correctness, getStudent().getFilepath()
+                    + "/" + quiz.get(quizIndex).getQuestionText() + ".txt");
+            getStudent().getReviewScheduler().update(qh);
         }
         quizIndex ++;
         return correctness;
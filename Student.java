@@ -18,15 +18,30 @@
 
 package com.icloud.cs_temporary.EducationApplication;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 
 /**
- * Object that represents a Student
+ * Object that represents a Student. The set of QuestionHistories is fixed once the Student is constructed, so lookups
+ * need no locking; each QuestionHistory guards its own responses.
+ *
+ * The Student's directory may hold a manifest of HistorySummary lines, one per QuestionHistory file. A file whose
+ * summary is still current is not read when the Student is constructed, only when its responses are first needed.
  */
 public class Student {
-    private String name;
-    private ArrayList<QuestionHistory> questionHistories;
-    private String filepath;
+    private static final String MANIFEST_FILE_NAME = "history.manifest";
+
+    private final String name;
+    private final ArrayList<QuestionHistory> questionHistories;
+    private final QuestionIndex questionIndex;
+    private final QuestionHistory[] historiesByOrdinal;
+    private final String filepath;
+    private final ReviewScheduler reviewScheduler;
 
     /**
      * Constructor that creates a new Student
@@ -35,7 +50,10 @@ public class Student {
     public Student(String inName, String inFilepath) {
         name = inName;
         questionHistories = new ArrayList<>();
+        questionIndex = new QuestionIndex(new Question[0]);
+        historiesByOrdinal = new QuestionHistory[0];
         filepath = inFilepath;
+        reviewScheduler = new ReviewScheduler(questionIndex, historiesByOrdinal);
     }
 
     /**
@@ -45,32 +63,78 @@ public class Student {
      * @throws Exception Thrown if the Student's records are improperly formatted or missing
      */
     public Student(String inPath, Question[] inQuestionList) throws Exception {
+        this(inPath, new QuestionIndex(inQuestionList));
+    }
+
+    /**
+     * Constructor that creates a Student from their filesystem records
+     * @param inPath Path to the root of the Student's directory
+     * @param inQuestionIndex Index of all the Questions in the System
+     * @throws Exception Thrown if the Student's records are improperly formatted or missing
+     */
+    public Student(String inPath, QuestionIndex inQuestionIndex) throws Exception {
+        this(inPath, inQuestionIndex, false);
+    }
+
+    /**
+     * Constructor that creates a Student from their filesystem records, optionally without changing them. A read-only
+     * Student does not create missing QuestionHistory files, append to index.txt or rename legacy files; Questions
+     * without a file get an empty history in memory only. A read-only Student is meant for reports and must not be
+     * used to record answers.
+     * @param inPath Path to the root of the Student's directory
+     * @param inQuestionIndex Index of all the Questions in the System
+     * @param inReadOnly Whether to leave the Student's directory untouched
+     * @throws Exception Thrown if the Student's records are improperly formatted or missing
+     */
+    public Student(String inPath, QuestionIndex inQuestionIndex, boolean inReadOnly) throws Exception {
+        this(inPath, inQuestionIndex, inReadOnly, ResponseJournal.SYNC_NEVER);
+    }
+
+    /**
+     * Constructor that creates a Student from their filesystem records, optionally without changing them, with a sync
+     * policy for the answers they record
+     * @param inPath Path to the root of the Student's directory
+     * @param inQuestionIndex Index of all the Questions in the System
+     * @param inReadOnly Whether to leave the Student's directory untouched
+     * @param syncInterval Number of answers to append to a QuestionHistory file between forcing it to disk, or
+     *                     ResponseJournal.SYNC_NEVER to leave flushing to the operating system
+     * @throws Exception Thrown if the Student's records are improperly formatted or missing
+     */
+    public Student(String inPath, QuestionIndex inQuestionIndex, boolean inReadOnly, int syncInterval)
+            throws Exception {
         filepath = inPath;
-        Question[] questionList = inQuestionList.clone();
+        questionIndex = inQuestionIndex;
+        // Marks the ordinals of Questions whose QuestionHistory file has been found
+        boolean[] found = new boolean[questionIndex.size()];
         // Get name from id.txt
         String idText = FileUtilities.fromFileCleaned(filepath + "/id.txt");
         name = idText.substring(0, idText.indexOf(FileUtilities.EOL));
         // Make QuestionHistories from existing QuestionHistory files
         String indexText = FileUtilities.fromFileCleaned(filepath + "/index.txt");
         String[] questionHistoryFiles = Utilities.stringSplit(indexText, FileUtilities.EOL);
+        HashMap<String, HistorySummary> summaries = readSummaries();
         questionHistories = new ArrayList<>();
+        historiesByOrdinal = new QuestionHistory[questionIndex.size()];
         for (String fileName : questionHistoryFiles) {
             String questionText = fileName.substring(0, fileName.length() - 4);
+            int ordinal = questionIndex.getOrdinal(questionText);
             Question question = null;
-            for (int i = 0; i < questionList.length; i ++) {
-                if (questionList[i] != null) {
-                    Question currQ = questionList[i];
-                    if (currQ.getQuestionText().equals(questionText)) {
-                        question = currQ;
-                        // Replace the question in the array with null to mark it as found
-                        questionList[i] = null;
-                    }
-                }
+            if (ordinal >= 0 && !found[ordinal]) {
+                question = questionIndex.get(ordinal);
+                found[ordinal] = true;
             }
 
             if (question instanceof StaticQuestion) {
-                QuestionHistory qh = new StaticQuestionHistory((StaticQuestion) question, filepath + "/" + fileName);
-                questionHistories.add(qh);
+                String historyPath = filepath + "/" + fileName;
+                if (!inReadOnly)
+                    migrateLegacyFileName(fileName);
+                else if (!new File(historyPath).exists())
+                    historyPath = filepath + "/" + FileUtilities.toLegacyDecoding(fileName);
+                HistorySummary summary = summaries.get(fileName);
+                if (summary != null && summary.isCurrent(historyPath))
+                    addQuestionHistory(new StaticQuestionHistory((StaticQuestion) question, historyPath, summary));
+                else
+                    addQuestionHistory(new StaticQuestionHistory((StaticQuestion) question, historyPath));
             } else if (question == null) {
                 throw new Exception("No Question found for QuestionHistory file " + filepath + "/" + fileName);
             } else {
@@ -78,19 +142,95 @@ public class Student {
             }
         }
         // Create blank QuestionHistory files and objects for those questions without a QuestionHistory file already
-        for (Question q : questionList) {
-            // If a question is not null (meaning it was not used already), create a blank file and object for it
-            if (q != null) {
-                if (q instanceof StaticQuestion) {
+        for (int i = 0; i < questionIndex.size(); i ++) {
+            Question q = questionIndex.get(i);
+            // If the question's file was not found (meaning it was not used already), create a blank file and object
+            if (!found[questionIndex.getOrdinal(q.getQuestionText())]) {
+                if (q instanceof StaticQuestion && inReadOnly) {
+                    addQuestionHistory(new StaticQuestionHistory((StaticQuestion) q));
+                } else if (q instanceof StaticQuestion) {
                     // Create history file
                     FileUtilities.toFile("Timestamp\tDuration\tCorrectness\tResponse" + FileUtilities.EOL, filepath + "/" +
                             q.getQuestionText() + ".txt");
                     // Add filename to end of index file
                     FileUtilities.appendFile(q.getQuestionText() + ".txt" + FileUtilities.EOL, filepath + "/" + "index.txt");
+                    // Read back the blank file, so the history knows the file and can be summarized
+                    addQuestionHistory(new StaticQuestionHistory((StaticQuestion) q, filepath + "/" +
+                            q.getQuestionText() + ".txt"));
+                    found[questionIndex.getOrdinal(q.getQuestionText())] = true;
                 } else
                     throw new Exception("Question " + q.toString() + " is not of a known type");
             }
         }
+        for (QuestionHistory qh : questionHistories)
+            ((StaticQuestionHistory) qh).setSyncInterval(syncInterval);
+        reviewScheduler = new ReviewScheduler(questionIndex, historiesByOrdinal);
+    }
+
+    /**
+     * Add a QuestionHistory to the Student's records in memory
+     * @param qh QuestionHistory to add
+     */
+    private void addQuestionHistory(QuestionHistory qh) {
+        questionHistories.add(qh);
+        historiesByOrdinal[questionIndex.getOrdinal(qh.getQuestion().getQuestionText())] = qh;
+    }
+
+    /**
+     * Read the summaries of the Student's QuestionHistory files saved by saveSummaries
+     * @return Summary of each file, by file name; empty if there is no manifest
+     */
+    private HashMap<String, HistorySummary> readSummaries() {
+        HashMap<String, HistorySummary> summaries = new HashMap<>();
+        if (!new File(filepath + "/" + MANIFEST_FILE_NAME).exists())
+            return summaries;
+        String[] lines;
+        try {
+            lines = ResponseJournal.readLines(filepath + "/" + MANIFEST_FILE_NAME);
+        } catch (Exception e) {
+            return summaries;
+        }
+        // The manifest is only a cache, so a line that cannot be understood just means that file is read in full
+        for (String line : lines) {
+            try {
+                HistorySummary summary = new HistorySummary(line);
+                summaries.put(summary.getFileName(), summary);
+            } catch (Exception e) {
+                // Ignore the line
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Save a summary of each QuestionHistory file, so that the next time the Student is constructed only the responses
+     * appended since need to be read. The manifest is replaced atomically, so a crash leaves the old one.
+     * @throws Exception Thrown if the manifest cannot be written
+     */
+    public void saveSummaries() throws Exception {
+        StringBuilder manifest = new StringBuilder();
+        for (QuestionHistory qh : questionHistories) {
+            if (qh instanceof StaticQuestionHistory) {
+                HistorySummary summary = ((StaticQuestionHistory) qh).getSummary();
+                if (summary != null)
+                    manifest.append(summary.toString()).append(FileUtilities.EOL);
+            }
+        }
+        String tmpPath = filepath + "/" + MANIFEST_FILE_NAME + ".tmp";
+        Files.write(Paths.get(tmpPath), manifest.toString().getBytes(FileUtilities.CHARSET));
+        Files.move(Paths.get(tmpPath), Paths.get(filepath + "/" + MANIFEST_FILE_NAME),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rename a QuestionHistory file created under the name the old byte-per-character decoding gave it
+     * @param fileName Name of the file as listed in the index, decoded as UTF-8
+     */
+    private void migrateLegacyFileName(String fileName) {
+        File current = new File(filepath + "/" + fileName);
+        File legacy = new File(filepath + "/" + FileUtilities.toLegacyDecoding(fileName));
+        if (!current.exists() && legacy.exists())
+            legacy.renameTo(current);
     }
 
     /**
@@ -118,9 +258,10 @@ public class Student {
         double sum = 0;
         int count = 0;
 
-        for (QuestionHistory qh : questionHistories) {
-            if (qh.getQuestion().hasTag(tag)) {
-                sum += qh.getPercentMastered();
+        BitSet tagged = questionIndex.getTagIndex().getQuestionsWithTag(tag);
+        for (int i = tagged.nextSetBit(0); i >= 0; i = tagged.nextSetBit(i + 1)) {
+            if (historiesByOrdinal[i] != null) {
+                sum += historiesByOrdinal[i].getPercentMastered();
                 count ++;
             }
         }
@@ -130,10 +271,73 @@ public class Student {
 
     /**
      * Get all the Student's QuestionHistories
-     * @return The Student's answer records
+     * @return New list of the Student's answer records, which the caller may change freely
      */
     public ArrayList<QuestionHistory> getQuestionHistories() {
-        return questionHistories;
+        return new ArrayList<>(questionHistories);
+    }
+
+    /**
+     * Get those QuestionHistory objects of the Student's whose Questions have all the requested tags
+     * @param tags Array of tags, each of which must be present in each Question
+     *             An empty Array signals no restriction by tag
+     * @return QuestionHistory objects whose Questions have the requested tags, in order of Question ordinal
+     */
+    public ArrayList<QuestionHistory> getQuestionHistories(String[] tags) {
+        ArrayList<QuestionHistory> tagged = new ArrayList<>();
+        BitSet ordinals = questionIndex.getTagIndex().getQuestionsWithAllTags(tags);
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            if (historiesByOrdinal[i] != null)
+                tagged.add(historiesByOrdinal[i]);
+        }
+        return tagged;
+    }
+
+    /**
+     * Get the Student's QuestionHistory for the Question with the given ordinal
+     * @param ordinal Ordinal of the Question in the Student's QuestionIndex
+     * @return QuestionHistory for that Question, or null if the Student has none
+     */
+    public QuestionHistory getQuestionHistory(int ordinal) {
+        return historiesByOrdinal[ordinal];
+    }
+
+    /**
+     * Get the Student's QuestionHistory for the Question with the given text
+     * @param questionText Text of the Question
+     * @return QuestionHistory for that Question, or null if the Student has none
+     */
+    public QuestionHistory getQuestionHistory(String questionText) {
+        int ordinal = questionIndex.getOrdinal(questionText);
+        if (ordinal < 0)
+            return null;
+        else
+            return historiesByOrdinal[ordinal];
+    }
+
+    /**
+     * Get the Student's QuestionHistory for a Question
+     * @param question Question whose history to get
+     * @return QuestionHistory for that Question, or null if the Student has none
+     */
+    public QuestionHistory getQuestionHistory(Question question) {
+        return getQuestionHistory(question.getQuestionText());
+    }
+
+    /**
+     * Get the index of the Questions the Student's records refer to
+     * @return Index of all the Questions in the System
+     */
+    public QuestionIndex getQuestionIndex() {
+        return questionIndex;
+    }
+
+    /**
+     * Get the schedule of when each of the Student's Questions is next due
+     * @return Scheduler of the Student's Questions
+     */
+    public ReviewScheduler getReviewScheduler() {
+        return reviewScheduler;
     }
 
     /**
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Index from each tag to the set of Question ordinals that have it, so that tag queries are answered with bitset
+ * operations instead of String comparisons on every Question. An index is built once, in its constructor, with its
+ * QuestionIndex; when a category file changes, QuestionBank loads a new bank with a new index rather than changing one
+ * that other threads may be reading.
+ */
+public class TagIndex {
+    private final HashMap<String, Integer> tagIds;
+    private final ArrayList<BitSet> questionsByTag;
+    private final String[] tagsArray;
+    private final int questionCount;
+
+    /**
+     * Constructor that indexes the tags of the provided Questions
+     * @param questions Questions to index; each Question's ordinal is its position in the array
+     */
+    public TagIndex(Question[] questions) {
+        tagIds = new HashMap<>();
+        questionsByTag = new ArrayList<>();
+        ArrayList<String> tags = new ArrayList<>();
+        for (int i = 0; i < questions.length; i ++) {
+            for (String tag : questions[i].getTags()) {
+                Integer id = tagIds.get(tag);
+                if (id == null) {
+                    id = tags.size();
+                    tagIds.put(tag, id);
+                    tags.add(tag);
+                    questionsByTag.add(new BitSet());
+                }
+                questionsByTag.get(id).set(i);
+            }
+        }
+        tagsArray = tags.toArray(new String[tags.size()]);
+        questionCount = questions.length;
+    }
+
+    /**
+     * Get the ID of a tag
+     * @param tag Tag to look up
+     * @return ID of the tag, or -1 if no Question has it
+     */
+    public int getTagId(String tag) {
+        Integer id = tagIds.get(tag);
+        if (id == null)
+            return -1;
+        else
+            return id;
+    }
+
+    /**
+     * Get all the tags in the order they were first seen
+     * @return Array of all distinct tags
+     */
+    public String[] getTags() {
+        return tagsArray.clone();
+    }
+
+    /**
+     * Get the number of Questions that have a tag
+     * @param tag Tag to count
+     * @return Number of Questions with the tag
+     */
+    public int getQuestionCount(String tag) {
+        int id = getTagId(tag);
+        if (id < 0)
+            return 0;
+        else
+            return questionsByTag.get(id).cardinality();
+    }
+
+    /**
+     * Get the ordinals of the Questions that have a tag
+     * @param tag Tag the Questions must have
+     * @return New BitSet of the ordinals of Questions with the tag
+     */
+    public BitSet getQuestionsWithTag(String tag) {
+        int id = getTagId(tag);
+        if (id < 0)
+            return new BitSet();
+        else
+            return (BitSet) questionsByTag.get(id).clone();
+    }
+
+    /**
+     * Get the ordinals of the Questions that have all the tags
+     * @param targets Tags the Questions must have; an empty array matches every Question
+     * @return New BitSet of the ordinals of Questions with all the tags
+     */
+    public BitSet getQuestionsWithAllTags(String[] targets) {
+        BitSet result = new BitSet(questionCount);
+        result.set(0, questionCount);
+        for (String tag : targets) {
+            int id = getTagId(tag);
+            if (id < 0)
+                return new BitSet();
+            result.and(questionsByTag.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Get the ordinals of the Questions that have at least one of the tags
+     * @param targets Tags the Questions may have
+     * @return New BitSet of the ordinals of Questions with any of the tags
+     */
+    public BitSet getQuestionsWithAnyTags(String[] targets) {
+        BitSet result = new BitSet(questionCount);
+        for (String tag : targets) {
+            int id = getTagId(tag);
+            if (id >= 0)
+                result.or(questionsByTag.get(id));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 U8N WXD.
+ * This file is part of EducationApplication.
+ *
+ * EducationApplication is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EducationApplication is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EducationApplication.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.icloud.cs_temporary.EducationApplication;
+
+/**
+ * Reusable cursor that walks the terms of a CharSequence separated by a delimiter in a single pass. Like
+ * Utilities.stringSplit, empty terms are skipped.
+ */
+public class TokenCursor {
+    private CharSequence text;
+    private String delimiter;
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+
+    /**
+     * Constructor that creates a cursor positioned before the first term of the text
+     * @param inText Text to walk through
+     * @param inDelimiter Separation string, of any length
+     */
+    public TokenCursor(CharSequence inText, String inDelimiter) {
+        delimiter = inDelimiter;
+        reset(inText);
+    }
+
+    /**
+     * Start walking through new text with the same delimiter, so one cursor can be reused for many lines
+     * @param inText Text to walk through
+     */
+    public void reset(CharSequence inText) {
+        text = inText;
+        position = 0;
+        tokenStart = -1;
+        tokenEnd = -1;
+    }
+
+    /**
+     * Move to the next non-empty term
+     * @return true if there was another term, false if the end of the text was reached
+     */
+    public boolean next() {
+        int length = text.length();
+        while (position < length) {
+            int found = delimiter.length() == 0 ? -1 : indexOfDelimiter(position);
+            int end = found < 0 ? length : found;
+            int start = position;
+            position = found < 0 ? length : found + delimiter.length();
+            if (end > start) {
+                tokenStart = start;
+                tokenEnd = end;
+                return true;
+            }
+        }
+        tokenStart = -1;
+        tokenEnd = -1;
+        return false;
+    }
+
+    /**
+     * Get the index in the text where the current term starts
+     * @return Index of the first character of the current term
+     */
+    public int getStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Get the index in the text just after the current term
+     * @return Index after the last character of the current term
+     */
+    public int getEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * Get the current term as a String
+     * @return Current term
+     */
+    public String getToken() {
+        return text.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * Find the next occurrence of the delimiter
+     * @param from Index to start searching from
+     * @return Index of the delimiter, or -1 if it does not occur again
+     */
+    private int indexOfDelimiter(int from) {
+        if (text instanceof String)
+            return ((String) text).indexOf(delimiter, from);
+        int last = text.length() - delimiter.length();
+        char first = delimiter.charAt(0);
+        for (int i = from; i <= last; i ++) {
+            if (text.charAt(i) != first)
+                continue;
+            int j = 1;
+            while (j < delimiter.length() && text.charAt(i + j) == delimiter.charAt(j))
+                j ++;
+            if (j == delimiter.length())
+                return i;
+        }
+        return -1;
+    }
+}
@@ -34,18 +34,11 @@ public class Utilities {
      */
     public static String[] stringSplit(String toSplit, String breakPoint) {
         ArrayList<String> split = new ArrayList<>();
-        while (toSplit.contains(breakPoint)) {
-            if (toSplit.indexOf(breakPoint) != 0)
-                split.add(toSplit.substring(0, toSplit.indexOf(breakPoint)));
-            toSplit = toSplit.substring(toSplit.indexOf(breakPoint) + 1, toSplit.length());
-        }
-        if (toSplit.length() != 0)
-            split.add(toSplit);
+        TokenCursor cursor = new TokenCursor(toSplit, breakPoint);
+        while (cursor.next())
+            split.add(cursor.getToken());
         String[] splitArray = new String[split.size()];
-        for (int i = 0; i < split.size(); i ++) {
-            splitArray[i] = split.get(i);
-        }
-        return splitArray;
+        return split.toArray(splitArray);
     }
 
     /**
@@ -55,7 +48,94 @@ public class Utilities {
      * @return Array of all terms that were separated by the separation characters
      */
     public static String[] stringSplit(String toSplit, char breakPoint) {
-        return stringSplit(toSplit, "" + breakPoint);
+        return stringSplit(toSplit, String.valueOf(breakPoint));
+    }
+
+    /**
+     * Find the positions of the k smallest keys without sorting all of them
+     * @param keys Keys to select from
+     * @param k Number of positions to select; clamped to the range [0, keys.length]
+     * @return Positions of the k smallest keys in ascending order of key, with ties in order of position
+     */
+    public static int[] lowestIndices(double[] keys, int k) {
+        // Every slot returned must refer to a real key
+        k = Math.max(0, Math.min(k, keys.length));
+        // Max-heap of the k smallest keys seen so far, so the largest of them can be replaced in O(log k)
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < keys.length && k > 0; i ++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size, keys);
+                size ++;
+            } else if (ranksBefore(keys, i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, size, keys);
+            }
+        }
+        // Repeatedly moving the largest to the end of the heap leaves it in ascending order
+        while (size > 1) {
+            size --;
+            int largest = heap[0];
+            heap[0] = heap[size];
+            heap[size] = largest;
+            siftDown(heap, size, keys);
+        }
+        return heap;
+    }
+
+    /**
+     * Determine whether one position's key ranks before another's, breaking ties by position
+     * @param keys Keys being ranked
+     * @param a First position
+     * @param b Second position
+     * @return true if position a ranks before position b
+     */
+    private static boolean ranksBefore(double[] keys, int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    /**
+     * Move the element at a position of a max-heap up until its parent ranks after it
+     * @param heap Heap of positions
+     * @param index Index of the element to move
+     * @param keys Keys being ranked
+     */
+    private static void siftUp(int[] heap, int index, double[] keys) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!ranksBefore(keys, heap[parent], heap[index]))
+                return;
+            int swap = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = swap;
+            index = parent;
+        }
+    }
+
+    /**
+     * Move the root of a max-heap down until both its children rank before it
+     * @param heap Heap of positions
+     * @param size Number of elements in the heap
+     * @param keys Keys being ranked
+     */
+    private static void siftDown(int[] heap, int size, double[] keys) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && ranksBefore(keys, heap[largest], heap[left]))
+                largest = left;
+            if (right < size && ranksBefore(keys, heap[largest], heap[right]))
+                largest = right;
+            if (largest == index)
+                return;
+            int swap = heap[largest];
+            heap[largest] = heap[index];
+            heap[index] = swap;
+            index = largest;
+        }
     }
 
     /**